@@ -0,0 +1,290 @@
+package autocomplete;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import tsv.TsvReader;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * JMH benchmarks comparing the {@link Autocomplete} implementations on city names and DNA suffixes. Measures the time
+ * to add every term, the throughput and latency distribution of {@link Autocomplete#allMatches(CharSequence)} for
+ * prefixes of each length drawn from the terms, and the heap used per term. Run {@link #main(String[])} to write the
+ * results, including the allocation rate per query from the GC profiler, as JSON for comparison across commits.
+ * <p>
+ * Every engine is measured fully built: background compaction of {@link SegmentedAutocomplete} is finished inside the
+ * measured region of the build benchmarks and before the query benchmarks start.
+ */
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AutocompleteBenchmarks {
+    /**
+     * Paths to the cities and DNA datasets.
+     */
+    private static final String CITIES_PATH = "data/cities.tsv.gz";
+    private static final String DNA_PATH = "data/ecoli.txt.gz";
+    /**
+     * Maximum number of cities to parse.
+     */
+    private static final int MAX_CITIES = 100000;
+    /**
+     * Number of DNA suffixes, each truncated to {@value #DNA_LENGTH} bases so that engines storing every character of
+     * every term stay within memory.
+     */
+    private static final int DNA_SUFFIXES = 100000;
+    private static final int DNA_LENGTH = 100;
+    /**
+     * Number of prefixes queried in rotation.
+     */
+    private static final int PREFIXES = 1024;
+
+    /**
+     * The terms of a dataset to add to an engine, for the benchmarks that do not depend on the prefix length.
+     */
+    @State(Scope.Benchmark)
+    public static class Build {
+        @Param({
+                "TreeSet", "BinarySearch", "SequentialSearch", "TernarySearchTree", "FlatTernarySearchTree",
+                "TopKTernarySearchTree", "FiniteStateTransducer", "Segmented"
+        })
+        public String engine;
+
+        @Param({"cities", "dna"})
+        public String dataset;
+
+        List<CharSequence> terms;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            terms = "dna".equals(dataset) ? dna() : cities();
+        }
+    }
+
+    /**
+     * An engine containing every term of a dataset and prefixes of one length to query it with.
+     */
+    @State(Scope.Benchmark)
+    public static class Query {
+        @Param({
+                "TreeSet", "BinarySearch", "SequentialSearch", "TernarySearchTree", "FlatTernarySearchTree",
+                "TopKTernarySearchTree", "FiniteStateTransducer", "Segmented"
+        })
+        public String engine;
+
+        @Param({"cities", "dna"})
+        public String dataset;
+
+        @Param({"1", "2", "3", "4", "5", "6"})
+        public int prefixLength;
+
+        Autocomplete autocomplete;
+        CharSequence[] prefixes;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            List<CharSequence> terms = "dna".equals(dataset) ? dna() : cities();
+            autocomplete = build(engine, terms);
+            // Draw prefixes from the terms, so every query has at least one match.
+            Random random = new Random(373);
+            List<CharSequence> longEnough = new ArrayList<>();
+            for (CharSequence term : terms) {
+                if (term.length() >= prefixLength) {
+                    longEnough.add(term);
+                }
+            }
+            prefixes = new CharSequence[PREFIXES];
+            for (int i = 0; i < PREFIXES; i += 1) {
+                prefixes[i] = longEnough.get(random.nextInt(longEnough.size())).subSequence(0, prefixLength).toString();
+            }
+            next = 0;
+        }
+
+        /**
+         * Returns the matches for the next prefix in rotation.
+         */
+        List<CharSequence> allMatches() {
+            CharSequence prefix = prefixes[next];
+            next = (next + 1) % PREFIXES;
+            return autocomplete.allMatches(prefix);
+        }
+    }
+
+    /**
+     * Measures the time to add every term to an empty instance.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Autocomplete addAll(Build build) {
+        return build(build.engine, build.terms);
+    }
+
+    /**
+     * Measures the throughput of queries for all matches.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<CharSequence> allMatchesThroughput(Query query) {
+        return query.allMatches();
+    }
+
+    /**
+     * Measures the latency distribution of queries for all matches.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<CharSequence> allMatchesLatency(Query query) {
+        return query.allMatches();
+    }
+
+    /**
+     * Measures the heap used per term by an instance containing every term, reported as the bytesPerTerm counter.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 3)
+    public void footprint(Build build, Footprint footprint, Blackhole blackhole) {
+        long before = usedMemory();
+        Autocomplete result = build(build.engine, build.terms);
+        long after = usedMemory();
+        Reference.reachabilityFence(result);
+        footprint.bytesPerTerm = (double) (after - before) / build.terms.size();
+        blackhole.consume(result);
+    }
+
+    /**
+     * Counters for the {@link #footprint(Build, Footprint, Blackhole)} benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public double bytesPerTerm;
+    }
+
+    /**
+     * Runs every benchmark with the GC profiler and writes the results as JSON to the given path, or to
+     * autocomplete.json in the working directory. Any further arguments are regular expressions selecting the
+     * benchmarks to run.
+     *
+     * @param args the results path, followed by the benchmarks to run.
+     * @throws RunnerException if a benchmark fails.
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        if (args.length > 1) {
+            for (int i = 1; i < args.length; i += 1) {
+                options.include(args[i]);
+            }
+        } else {
+            options.include(AutocompleteBenchmarks.class.getName());
+        }
+        Options built = options
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(args.length > 0 ? args[0] : "autocomplete.json")
+                .build();
+        new Runner(built).run();
+    }
+
+    /**
+     * Returns a new instance of the named engine containing the terms, with any background work finished.
+     */
+    private static Autocomplete build(String engine, List<CharSequence> terms) {
+        Autocomplete result = create(engine);
+        result.addAll(terms);
+        if (result instanceof SegmentedAutocomplete) {
+            ((SegmentedAutocomplete) result).compact();
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new empty instance of the named engine.
+     */
+    private static Autocomplete create(String engine) {
+        switch (engine) {
+            case "TreeSet":
+                return new TreeSetAutocomplete();
+            case "BinarySearch":
+                return new BinarySearchAutocomplete();
+            case "SequentialSearch":
+                return new SequentialSearchAutocomplete();
+            case "TernarySearchTree":
+                return new TernarySearchTreeAutocomplete();
+            case "FlatTernarySearchTree":
+                return new FlatTernarySearchTreeAutocomplete();
+            case "TopKTernarySearchTree":
+                return new TopKTernarySearchTreeAutocomplete();
+            case "FiniteStateTransducer":
+                return new FiniteStateTransducerAutocomplete();
+            case "Segmented":
+                return new SegmentedAutocomplete();
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+
+    /**
+     * Returns the names of the first {@value #MAX_CITIES} cities.
+     */
+    private static List<CharSequence> cities() throws IOException {
+        List<CharSequence> result = new ArrayList<>(MAX_CITIES);
+        try (TsvReader input = new TsvReader(new GZIPInputStream(new FileInputStream(CITIES_PATH)))) {
+            while (result.size() < MAX_CITIES && input.next()) {
+                result.add(input.column(0).toString());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first {@value #DNA_SUFFIXES} suffixes of the DNA, each truncated to {@value #DNA_LENGTH} bases.
+     */
+    private static List<CharSequence> dna() throws IOException {
+        StringBuilder bases = new StringBuilder(DNA_SUFFIXES + DNA_LENGTH);
+        try (InputStream input = new BufferedInputStream(new GZIPInputStream(new FileInputStream(DNA_PATH)))) {
+            for (int c = input.read(); c >= 0 && bases.length() < DNA_SUFFIXES + DNA_LENGTH - 1; c = input.read()) {
+                if (!Character.isWhitespace(c)) {
+                    bases.append((char) c);
+                }
+            }
+        }
+        String text = bases.toString();
+        List<CharSequence> result = new ArrayList<>(DNA_SUFFIXES);
+        for (int i = 0; i < DNA_SUFFIXES && i < text.length(); i += 1) {
+            result.add(text.substring(i, Math.min(i + DNA_LENGTH, text.length())));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the heap in use after garbage collection.
+     */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i += 1) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the number of concurrent executions of an expensive operation. Callers beyond the concurrency limit wait in
+ * a bounded queue until a permit frees up or their deadline passes; once the queue is full, further callers are
+ * rejected immediately so the server can shed load instead of tying up every request thread. Permits are handed out in
+ * arrival order, so a newly arriving caller never takes a freed permit ahead of a queued one.
+ *
+ * @see MapServer
+ */
+class AdmissionController {
+    private final Semaphore permits;
+    private final int queueCapacity;
+    private final AtomicInteger waiting;
+
+    /**
+     * Constructs a controller admitting up to the given number of concurrent callers and queued callers.
+     *
+     * @param concurrency   the maximum number of callers holding a permit at once.
+     * @param queueCapacity the maximum number of callers waiting for a permit.
+     * @throws IllegalArgumentException if concurrency is not positive or the queue capacity is negative.
+     */
+    AdmissionController(int concurrency, int queueCapacity) {
+        if (concurrency <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Invalid limits " + concurrency + ", " + queueCapacity);
+        }
+        this.permits = new Semaphore(concurrency, true);
+        this.queueCapacity = queueCapacity;
+        this.waiting = new AtomicInteger();
+    }
+
+    /**
+     * Attempts to acquire a permit, waiting in the queue no later than the given deadline.
+     *
+     * @param deadline a {@link System#nanoTime()} value after which to stop waiting.
+     * @return {@link Admission#ADMITTED} if a permit was acquired and must later be {@link #release() released},
+     * {@link Admission#REJECTED} if the queue is full, or {@link Admission#EXPIRED} if the deadline passed first.
+     * @throws InterruptedException if the current thread is interrupted while waiting.
+     */
+    Admission acquire(long deadline) throws InterruptedException {
+        if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            return Admission.ADMITTED;
+        } else if (waiting.incrementAndGet() > queueCapacity) {
+            waiting.decrementAndGet();
+            return Admission.REJECTED;
+        }
+        try {
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0 && permits.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                return Admission.ADMITTED;
+            }
+            return Admission.EXPIRED;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a permit acquired by {@link #acquire(long)}.
+     */
+    void release() {
+        permits.release();
+    }
+
+    /**
+     * Outcome of an attempt to acquire a permit.
+     */
+    enum Admission {
+        ADMITTED, REJECTED, EXPIRED
+    }
+}
@@ -1,5 +1,8 @@
-import autocomplete.Autocomplete;
-import autocomplete.TreeSetAutocomplete;
+import autocomplete.FuzzyTernarySearchTreeAutocomplete;
+import autocomplete.NormalizedAutocomplete;
+import autocomplete.SnapshotAutocomplete;
+import autocomplete.TokenAutocomplete;
+import autocomplete.TopKTernarySearchTreeAutocomplete;
 import graphs.AStarGraph;
 import graphs.Edge;
 import org.locationtech.spatial4j.context.SpatialContext;
@@ -7,14 +10,17 @@ import org.locationtech.spatial4j.shape.Point;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
+import spatial.PointIndex;
+import spatial.PrefixPointIndex;
+import tsv.TsvReader;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.zip.GZIPInputStream;
 
@@ -25,12 +31,32 @@ import java.util.zip.GZIPInputStream;
  * @see MapServer
  */
 public class MapGraph implements AStarGraph<Point> {
+    /**
+     * Identifies snapshot files and their format version.
+     */
+    private static final int SNAPSHOT_MAGIC = 0x48534B59;
+    private static final int SNAPSHOT_VERSION = 1;
+    /**
+     * Minimum prefix lengths at which searches tolerate one and two typos when there are too few exact matches.
+     */
+    private static final int ONE_EDIT_LENGTH = 4;
+    private static final int TWO_EDIT_LENGTH = 8;
+    /**
+     * Search cost per degree of latitude (about 111 km) from the center of a nearby search. The cost of a location is
+     * the natural logarithm of its importance value, so a location with a 10 times larger importance value ranks
+     * first if it is about 5 km closer.
+     */
+    private static final double PROXIMITY_COST = 50;
     private final String osmPath;
     private final String placesPath;
     private final SpatialContext context;
     private final Map<Point, Set<Edge<Point>>> neighbors;
     private final Map<String, List<Point>> locations;
-    private final Autocomplete autocomplete;
+    private final PointIndex<Point> vertexIndex;
+    private final PointIndex<Place> places;
+    private final PrefixPointIndex<Place> nearbyNames;
+    private final SnapshotAutocomplete<NormalizedAutocomplete<FuzzyTernarySearchTreeAutocomplete>> autocomplete;
+    private final SnapshotAutocomplete<NormalizedAutocomplete<TokenAutocomplete>> words;
     private final Map<CharSequence, Integer> importance;
 
     /**
@@ -44,13 +70,61 @@ public class MapGraph implements AStarGraph<Point> {
      */
     public MapGraph(String osmPath, String placesPath, SpatialContext context)
             throws ParserConfigurationException, SAXException, IOException {
+        this(osmPath, placesPath, context, parseOsm(osmPath, context), parseImportance(placesPath));
+    }
+
+    /**
+     * Constructs a new street map graph from parsed OSM data and place importance.
+     */
+    private MapGraph(String osmPath, String placesPath, SpatialContext context, Handler handler,
+                     Map<CharSequence, Integer> importance) {
+        this(osmPath, placesPath, context, handler.neighbors, handler.byName, importance);
+    }
+
+    /**
+     * Constructs a new street map graph from its streets, named locations and place importance.
+     */
+    private MapGraph(String osmPath, String placesPath, SpatialContext context,
+                     Map<Point, Set<Edge<Point>>> neighbors, Map<String, List<Point>> locations,
+                     Map<CharSequence, Integer> importance) {
         this.osmPath = osmPath;
         this.placesPath = placesPath;
         this.context = context;
+        this.neighbors = neighbors;
+        this.locations = locations;
+        this.importance = importance;
 
-        // Parse the OpenStreetMap (OSM) data using the SAXParser XML tree walker.
-        neighbors = new HashMap<>();
-        Handler handler = new Handler(Set.of(
+        // Index the vertices for snapping and the named locations for viewport and nearest queries.
+        vertexIndex = new PointIndex<>(neighbors.keySet(), Point::getLon, Point::getLat);
+        List<Place> named = new ArrayList<>();
+        for (Map.Entry<String, List<Point>> entry : locations.entrySet()) {
+            for (Point location : entry.getValue()) {
+                named.add(new Place(entry.getKey(), location));
+            }
+        }
+        places = new PointIndex<>(named, place -> place.lon, place -> place.lat);
+        named.removeIf(place -> NormalizedAutocomplete.fold(place.name).isBlank());
+        nearbyNames = new PrefixPointIndex<>(named,
+                place -> NormalizedAutocomplete.fold(place.name).strip(), place -> place.lon, place -> place.lat,
+                place -> Math.log1p(Math.max(0, importance.getOrDefault(place.name, Integer.MAX_VALUE)))
+        );
+
+        // Add reachable locations to the Autocomplete engine, ranking smaller importance values first. Snapshots let
+        // searches run while locations are added.
+        autocomplete = new SnapshotAutocomplete<>(() -> new NormalizedAutocomplete<>(
+                new FuzzyTernarySearchTreeAutocomplete()
+        ));
+        autocomplete.addAll(locations.keySet(), name -> -importance.getOrDefault(name, Integer.MAX_VALUE));
+        words = new SnapshotAutocomplete<>(() -> new NormalizedAutocomplete<>(new TokenAutocomplete()));
+        words.addAll(locations.keySet(), name -> -importance.getOrDefault(name, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Parses the OpenStreetMap (OSM) data using the SAXParser XML tree walker.
+     */
+    private static Handler parseOsm(String osmPath, SpatialContext context)
+            throws ParserConfigurationException, SAXException, IOException {
+        Handler handler = new Handler(context, Set.of(
                 "motorway",
                 "trunk",
                 "primary",
@@ -67,19 +141,135 @@ public class MapGraph implements AStarGraph<Point> {
         ));
         SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
         saxParser.parse(new GZIPInputStream(fileStream(osmPath)), handler);
+        return handler;
+    }
+
+    /**
+     * Parses the place-importance data.
+     */
+    private static Map<CharSequence, Integer> parseImportance(String placesPath) throws IOException {
+        Map<CharSequence, Integer> importance = new HashMap<>();
+        try (TsvReader input = new TsvReader(new GZIPInputStream(fileStream(placesPath)), true)) {
+            while (input.next()) {
+                importance.put(input.column(0).toString(), input.intColumn(1));
+            }
+        }
+        return importance;
+    }
 
-        // Add reachable locations to the Autocomplete engine.
-        locations = handler.byName;
-        autocomplete = new TreeSetAutocomplete();
-        autocomplete.addAll(locations.keySet());
-
-        // Parse the place-importance data.
-        importance = new HashMap<>();
-        try (Scanner input = new Scanner(new GZIPInputStream(fileStream(placesPath)))) {
-            while (input.hasNextLine()) {
-                Scanner line = new Scanner(input.nextLine()).useDelimiter("\t");
-                importance.put(line.next(), line.nextInt());
+    /**
+     * Reads a street map graph from a snapshot file written by {@link #writeSnapshot(String)}. Reading a snapshot
+     * skips parsing the OSM XML, which dominates the time to construct a graph from the original data files.
+     *
+     * @param path    the path to the snapshot file.
+     * @param context the spatial context for the graph.
+     * @return the street map graph stored in the snapshot.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static MapGraph readSnapshot(String path, SpatialContext context) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a map snapshot: " + path);
             }
+            String osmPath = in.readUTF();
+            String placesPath = in.readUTF();
+            Point[] vertices = new Point[in.readInt()];
+            for (int i = 0; i < vertices.length; i += 1) {
+                double lon = in.readDouble();
+                double lat = in.readDouble();
+                vertices[i] = context.getShapeFactory().pointLatLon(lat, lon);
+            }
+            int sources = in.readInt();
+            Map<Point, Set<Edge<Point>>> neighbors = new HashMap<>(2 * sources);
+            for (int i = 0; i < sources; i += 1) {
+                Point from = vertices[in.readInt()];
+                int degree = in.readInt();
+                Set<Edge<Point>> edges = new HashSet<>(2 * degree);
+                for (int j = 0; j < degree; j += 1) {
+                    Point to = vertices[in.readInt()];
+                    edges.add(new Edge<>(from, to, in.readDouble()));
+                }
+                neighbors.put(from, edges);
+            }
+            int names = in.readInt();
+            Map<String, List<Point>> locations = new HashMap<>(2 * names);
+            for (int i = 0; i < names; i += 1) {
+                String name = in.readUTF();
+                int count = in.readInt();
+                List<Point> points = new ArrayList<>(count);
+                for (int j = 0; j < count; j += 1) {
+                    double lon = in.readDouble();
+                    double lat = in.readDouble();
+                    points.add(context.getShapeFactory().pointLatLon(lat, lon));
+                }
+                locations.put(name, points);
+            }
+            int places = in.readInt();
+            Map<CharSequence, Integer> importance = new HashMap<>(2 * places);
+            for (int i = 0; i < places; i += 1) {
+                String name = in.readUTF();
+                importance.put(name, in.readInt());
+            }
+            return new MapGraph(osmPath, placesPath, context, neighbors, locations, importance);
+        }
+    }
+
+    /**
+     * Writes this graph to a snapshot file that can be read by {@link #readSnapshot(String, SpatialContext)}. The
+     * snapshot is written to a temporary file and then moved into place, so readers never see a partial snapshot.
+     *
+     * @param path the path to the snapshot file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeSnapshot(String path) throws IOException {
+        Path target = Path.of(path).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeUTF(osmPath);
+                out.writeUTF(placesPath);
+                // Number every vertex, including edge destinations without outgoing edges.
+                Map<Point, Integer> ids = new LinkedHashMap<>();
+                for (Map.Entry<Point, Set<Edge<Point>>> entry : neighbors.entrySet()) {
+                    ids.putIfAbsent(entry.getKey(), ids.size());
+                    for (Edge<Point> edge : entry.getValue()) {
+                        ids.putIfAbsent(edge.to, ids.size());
+                    }
+                }
+                out.writeInt(ids.size());
+                for (Point vertex : ids.keySet()) {
+                    out.writeDouble(vertex.getLon());
+                    out.writeDouble(vertex.getLat());
+                }
+                out.writeInt(neighbors.size());
+                for (Map.Entry<Point, Set<Edge<Point>>> entry : neighbors.entrySet()) {
+                    out.writeInt(ids.get(entry.getKey()));
+                    out.writeInt(entry.getValue().size());
+                    for (Edge<Point> edge : entry.getValue()) {
+                        out.writeInt(ids.get(edge.to));
+                        out.writeDouble(edge.weight);
+                    }
+                }
+                out.writeInt(locations.size());
+                for (Map.Entry<String, List<Point>> entry : locations.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (Point location : entry.getValue()) {
+                        out.writeDouble(location.getLon());
+                        out.writeDouble(location.getLat());
+                    }
+                }
+                out.writeInt(importance.size());
+                for (Map.Entry<CharSequence, Integer> entry : importance.entrySet()) {
+                    out.writeUTF(entry.getKey().toString());
+                    out.writeInt(entry.getValue());
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
         }
     }
 
@@ -99,40 +289,173 @@ public class MapGraph implements AStarGraph<Point> {
      *
      * @param target the target location.
      * @return the id of the location closest to the target.
+     * @throws NoSuchElementException if the graph has no vertices.
      */
     public Point closest(Point target) {
-        return Collections.min(neighbors.keySet(), Comparator.comparingDouble(
-                location -> context.calcDistance(target, location)
-        ));
+        List<Point> result = vertexIndex.nearest(target.getLon(), target.getLat(), 1, location -> true);
+        if (result.isEmpty()) {
+            throw new NoSuchElementException("No vertices in " + this);
+        }
+        return result.get(0);
     }
 
     /**
-     * Return the names of all locations that prefix-match the query string.
+     * Return the names of the most important locations that prefix-match the query string. If there are fewer than k
+     * exact matches, the remaining names are those with words starting with each query word, and then for a long
+     * enough prefix, those that match with the fewest typos.
      *
      * @param prefix prefix string that could be any case with or without punctuation.
-     * @return a list of full names of locations matching the prefix.
+     * @param k      maximum number of names to return.
+     * @return a list of up to k full names of locations matching the prefix, exact matches first, then by importance.
      */
-    public List<CharSequence> getLocationsByPrefix(String prefix) {
-        List<CharSequence> result = autocomplete.allMatches(prefix);
-        result.sort(Comparator.comparingInt(importance::get));
+    public List<CharSequence> getLocationsByPrefix(String prefix, int k) {
+        return getLocationsByPrefix(prefix, k, null);
+    }
+
+    /**
+     * Return the names of the most important locations that prefix-match the query string, continuing the exact match
+     * search from the previous query in the given session when the query extends it.
+     *
+     * @param prefix  prefix string that could be any case with or without punctuation.
+     * @param k       maximum number of names to return.
+     * @param session the session of the user typing the query, or null to search from scratch.
+     * @return a list of up to k full names of locations matching the prefix, exact matches first, then by importance.
+     * @see #getLocationsByPrefix(String, int)
+     */
+    public List<CharSequence> getLocationsByPrefix(String prefix, int k, SearchSession session) {
+        // Query one snapshot throughout so that exact and fuzzy matches come from the same locations.
+        NormalizedAutocomplete<FuzzyTernarySearchTreeAutocomplete> current = autocomplete.snapshot();
+        List<CharSequence> result = session == null
+                ? current.topMatches(prefix, k)
+                : current.topMatches(prefix, k, (index, key) -> session.topMatches(index, key, k));
+        if (result.size() < k) {
+            // Fewer than k exact matches means every exact match is already in the result.
+            Set<CharSequence> seen = new HashSet<>(result);
+            fill(result, seen, words.topMatches(prefix, k), k);
+            int length = NormalizedAutocomplete.fold(prefix).length();
+            if (result.size() < k && length >= ONE_EDIT_LENGTH) {
+                int maxEdits = length >= TWO_EDIT_LENGTH ? 2 : 1;
+                fill(result, seen, current.search(
+                        prefix, k, (index, key) -> index.fuzzyMatches(key, maxEdits, k)
+                ), k);
+            }
+        }
         return result;
     }
 
     /**
-     * Return all locations that match a valid location name.
+     * Return the names of the locations that prefix-match the query string, ranked by a blend of their importance and
+     * their distance to the center. If there are fewer than k exact matches, the remaining names are the other
+     * matches of {@link #getLocationsByPrefix(String, int, SearchSession)}.
+     *
+     * @param prefix  prefix string that could be any case with or without punctuation.
+     * @param k       maximum number of names to return.
+     * @param center  the location to rank nearby matches first, such as the center of the viewport.
+     * @param session the session of the user typing the query, or null to search from scratch.
+     * @return a list of up to k full names of locations matching the prefix, exact matches first, then by importance
+     * and distance.
+     */
+    public List<CharSequence> getLocationsByPrefixNear(String prefix, int k, Point center, SearchSession session) {
+        Set<CharSequence> seen = new HashSet<>();
+        List<CharSequence> result = new ArrayList<>();
+        // The closest location with each name ranks the name, so skip the names already seen.
+        for (Place place : nearbyNames.topMatches(NormalizedAutocomplete.fold(prefix), center.getLon(),
+                center.getLat(), PROXIMITY_COST, k, place -> seen.add(place.name))) {
+            result.add(place.name);
+        }
+        if (result.size() < k) {
+            fill(result, seen, getLocationsByPrefix(prefix, k, session), k);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the matches that have not been seen to the result until it has k names.
+     */
+    private static void fill(List<CharSequence> result, Set<CharSequence> seen, List<CharSequence> matches, int k) {
+        for (CharSequence match : matches) {
+            if (result.size() < k && seen.add(match)) {
+                result.add(match);
+            }
+        }
+    }
+
+    /**
+     * Return the locations inside the viewport that match a valid location name.
      *
      * @param locationName a full name of a valid location.
-     * @return a list of locations whose name matches the location name.
+     * @param center       the center of the viewport.
+     * @param halfWidth    half the width of the viewport in degrees of longitude.
+     * @param halfHeight   half the height of the viewport in degrees of latitude.
+     * @return a list of locations inside the viewport whose name matches the location name.
      */
-    public List<Point> getLocations(String locationName, Point center) {
+    public List<Point> getLocations(String locationName, Point center, double halfWidth, double halfHeight) {
         if (locationName == null || !locations.containsKey(locationName)) {
             return List.of();
         }
-        List<Point> result = new ArrayList<>(locations.get(locationName));
-        result.sort(Comparator.comparingDouble(location -> context.calcDistance(center, location)));
+        List<Point> result = new ArrayList<>();
+        for (Place place : places.range(
+                center.getLon() - halfWidth, center.getLat() - halfHeight,
+                center.getLon() + halfWidth, center.getLat() + halfHeight,
+                place -> place.name.equals(locationName)
+        )) {
+            result.add(place.location);
+        }
         return result;
     }
 
+    /**
+     * Return the named places inside the viewport closest to its center.
+     *
+     * @param center     the center of the viewport.
+     * @param halfWidth  half the width of the viewport in degrees of longitude.
+     * @param halfHeight half the height of the viewport in degrees of latitude.
+     * @param limit      maximum number of places to return.
+     * @return a list of up to limit places inside the viewport, closest to the center first.
+     */
+    public List<Place> getPlacesWithin(Point center, double halfWidth, double halfHeight, int limit) {
+        return places.nearest(center.getLon(), center.getLat(), limit,
+                center.getLon() - halfWidth, center.getLat() - halfHeight,
+                center.getLon() + halfWidth, center.getLat() + halfHeight,
+                place -> true
+        );
+    }
+
+    /**
+     * Return the named places closest to the target location, optionally only those with the given name.
+     *
+     * @param target       the target location.
+     * @param k            maximum number of places to return.
+     * @param locationName a full name of a location to match, or null to match any name.
+     * @return a list of up to k places, closest to the target first.
+     */
+    public List<Place> getNearestPlaces(Point target, int k, String locationName) {
+        if (locationName != null && !locations.containsKey(locationName)) {
+            return List.of();
+        }
+        return places.nearest(target.getLon(), target.getLat(), k,
+                place -> locationName == null || place.name.equals(locationName)
+        );
+    }
+
+    /**
+     * Returns an unmodifiable view of the vertices with outgoing edges in this graph.
+     *
+     * @return the vertices with outgoing edges in this graph.
+     */
+    public Collection<Point> vertices() {
+        return Collections.unmodifiableSet(neighbors.keySet());
+    }
+
+    /**
+     * Returns an unmodifiable view of the full names of all named locations.
+     *
+     * @return the full names of all named locations.
+     */
+    public Collection<String> locationNames() {
+        return Collections.unmodifiableSet(locations.keySet());
+    }
+
     @Override
     public List<Edge<Point>> neighbors(Point v) {
         return new ArrayList<>(neighbors.getOrDefault(v, Set.of()));
@@ -153,20 +476,49 @@ public class MapGraph implements AStarGraph<Point> {
     }
 
     /**
-     * Adds an edge to this graph if it doesn't already exist, using distance as the weight.
+     * A named location. Serializes to JSON as its name, longitude and latitude.
+     */
+    public static class Place {
+        public final String name;
+        public final double lon;
+        public final double lat;
+        final Point location;
+
+        Place(String name, Point location) {
+            this.name = name;
+            this.lon = location.getLon();
+            this.lat = location.getLat();
+            this.location = location;
+        }
+    }
+
+    /**
+     * The state kept between the queries of one user typing a search one keystroke at a time. When the locations are
+     * replaced, the next query starts over on the new locations.
      */
-    private void addEdge(Point from, Point to) {
-        if (!neighbors.containsKey(from)) {
-            neighbors.put(from, new HashSet<>());
+    public static class SearchSession {
+        private TopKTernarySearchTreeAutocomplete index;
+        private TopKTernarySearchTreeAutocomplete.Session session;
+
+        /**
+         * Returns up to k keys matching the normalized prefix, continuing from the previous query on the same index.
+         */
+        synchronized List<CharSequence> topMatches(TopKTernarySearchTreeAutocomplete index, CharSequence key, int k) {
+            if (index != this.index) {
+                this.index = index;
+                this.session = index.session();
+            }
+            return session.topMatches(key, k);
         }
-        neighbors.get(from).add(new Edge<>(from, to, estimatedDistance(from, to)));
     }
 
     /**
      * Parses OSM XML files to construct a StreetMapGraph.
      */
-    private class Handler extends DefaultHandler {
+    private static class Handler extends DefaultHandler {
+        private final SpatialContext context;
         private final Set<String> allowedHighwayTypes;
+        private final Map<Point, Set<Edge<Point>>> neighbors;
         private final Map<Long, Point> byId;
         private final Map<String, List<Point>> byName;
         private String state;
@@ -176,13 +528,25 @@ public class MapGraph implements AStarGraph<Point> {
         private Point location;
         private Queue<Point> path;
 
-        Handler(Set<String> allowedHighwayTypes) {
+        Handler(SpatialContext context, Set<String> allowedHighwayTypes) {
+            this.context = context;
             this.allowedHighwayTypes = allowedHighwayTypes;
+            this.neighbors = new HashMap<>();
             this.byId = new HashMap<>();
             this.byName = new HashMap<>();
             reset();
         }
 
+        /**
+         * Adds an edge to the graph if it doesn't already exist, using distance as the weight.
+         */
+        private void addEdge(Point from, Point to) {
+            if (!neighbors.containsKey(from)) {
+                neighbors.put(from, new HashSet<>());
+            }
+            neighbors.get(from).add(new Edge<>(from, to, context.calcDistance(from, to)));
+        }
+
         /**
          * Reset the handler state before processing a new way or node.
          */
@@ -0,0 +1,199 @@
+import io.javalin.Javalin;
+import metrics.Histogram;
+import org.locationtech.spatial4j.context.SpatialContext;
+import org.locationtech.spatial4j.shape.Point;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test the {@code huskymaps} server in-process against a blank stand-in for the base map images.
+ * <p>
+ * Requests are a seeded random mix of {@code /search} prefixes of the place names loaded by {@link MapGraph} and
+ * {@code /map} routes between random graph vertices. Requests are sent open-loop at a constant arrival rate, so a slow
+ * response never delays the next request, and latency is measured from each request's intended send time to correct
+ * for coordinated omission. Arguments are optional {@code key=value} pairs: {@code rate} (requests per second),
+ * {@code seconds} (measured duration), {@code warmup} (unmeasured seconds before that), and {@code search} (fraction of
+ * requests that are searches).
+ *
+ * @see MapServer
+ */
+public class MapLoadGenerator {
+    /**
+     * Default number of requests sent per second.
+     */
+    private static final double RATE = 50;
+    /**
+     * Default number of seconds to measure.
+     */
+    private static final double SECONDS = 60;
+    /**
+     * Default number of seconds to run before measuring.
+     */
+    private static final double WARMUP = 10;
+    /**
+     * Default fraction of requests that are {@code /search} requests rather than {@code /map} routes.
+     */
+    private static final double SEARCH_FRACTION = 0.8;
+    /**
+     * Longest prefix length sampled for {@code /search} requests.
+     */
+    private static final int MAX_PREFIX_LENGTH = 6;
+    /**
+     * Zoom level and window dimensions for {@code /map} requests.
+     */
+    private static final int ZOOM = 13;
+    private static final int WIDTH = 1200;
+    private static final int HEIGHT = 800;
+    /**
+     * Seconds to wait for outstanding responses after the last request is sent.
+     */
+    private static final long DRAIN_SECONDS = 60;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Double> options = new HashMap<>(Map.of(
+                "rate", RATE, "seconds", SECONDS, "warmup", WARMUP, "search", SEARCH_FRACTION
+        ));
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2 || !options.containsKey(pair[0])) {
+                throw new IllegalArgumentException("Unknown argument " + arg + ", expected one of " + options.keySet());
+            }
+            options.put(pair[0], Double.parseDouble(pair[1]));
+        }
+        double rate = options.get("rate");
+        double warmup = options.get("warmup");
+        double seconds = options.get("seconds");
+
+        SpatialContext context = SpatialContext.GEO;
+        MapGraph map = new MapGraph(MapServer.OSM_DB_PATH, MapServer.PLACES_PATH, context);
+        Javalin app = MapServer.start(map, context, 0, MapLoadGenerator::blank, () -> map);
+        String base = "http://localhost:" + app.port();
+
+        Random random = new Random(373);
+        List<String> names = new ArrayList<>(map.locationNames());
+        List<Point> vertices = new ArrayList<>(map.vertices());
+        int total = (int) Math.ceil(rate * (warmup + seconds));
+        List<Workload> workloads = new ArrayList<>(total);
+        for (int i = 0; i < total; i += 1) {
+            if (random.nextDouble() < options.get("search")) {
+                workloads.add(new Workload(Workload.SEARCH, URI.create(base + searchPath(names, random))));
+            } else {
+                workloads.add(new Workload(Workload.MAP, URI.create(base + mapPath(vertices, random))));
+            }
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        Histogram[] corrected = {new Histogram(1e-9), new Histogram(1e-9)};
+        Histogram[] uncorrected = {new Histogram(1e-9), new Histogram(1e-9)};
+        LongAdder[] errors = {new LongAdder(), new LongAdder()};
+        LongAccumulator lastDone = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        CountDownLatch outstanding = new CountDownLatch(total);
+        long interval = (long) (1e9 / rate);
+        long begin = System.nanoTime();
+        long measureFrom = begin + (long) (warmup * 1e9);
+        for (int i = 0; i < total; i += 1) {
+            Workload workload = workloads.get(i);
+            long intended = begin + i * interval;
+            for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = intended >= measureFrom;
+            long sent = System.nanoTime();
+            client.sendAsync(workload.request, HttpResponse.BodyHandlers.discarding()).whenComplete((r, e) -> {
+                long done = System.nanoTime();
+                lastDone.accumulate(done);
+                if (measured) {
+                    if (e != null || r.statusCode() != 200) {
+                        errors[workload.type].increment();
+                    } else {
+                        corrected[workload.type].record(done - intended);
+                        uncorrected[workload.type].record(done - sent);
+                    }
+                }
+                outstanding.countDown();
+            });
+        }
+        if (!outstanding.await(DRAIN_SECONDS, TimeUnit.SECONDS)) {
+            System.out.println(outstanding.getCount() + " requests did not complete");
+        }
+        double elapsed = (lastDone.get() - measureFrom) / 1e9;
+        app.stop();
+
+        System.out.printf("Offered %.1f requests/s for %.0f s after %.0f s warmup%n", rate, seconds, warmup);
+        System.out.println("endpoint,requests,errors,throughput,p50_ms,p99_ms,p999_ms,max_ms,"
+                + "service_p50_ms,service_p99_ms,service_p999_ms");
+        for (int type : new int[]{Workload.SEARCH, Workload.MAP}) {
+            double[] latency = corrected[type].quantiles(0.5, 0.99, 0.999);
+            double[] service = uncorrected[type].quantiles(0.5, 0.99, 0.999);
+            System.out.printf(Locale.ROOT, "%s,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f%n",
+                    Workload.ENDPOINTS[type], corrected[type].count(), errors[type].sum(),
+                    corrected[type].count() / elapsed,
+                    latency[0] * 1e3, latency[1] * 1e3, latency[2] * 1e3, corrected[type].max() * 1e3,
+                    service[0] * 1e3, service[1] * 1e3, service[2] * 1e3
+            );
+        }
+    }
+
+    /**
+     * Returns a {@code /search} path for a random prefix of a random place name.
+     */
+    private static String searchPath(List<String> names, Random random) {
+        String name = names.get(random.nextInt(names.size()));
+        int length = 1 + random.nextInt(Math.min(name.length(), MAX_PREFIX_LENGTH));
+        return "/search?term=" + URLEncoder.encode(name.substring(0, length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a {@code /map} path for a route between two random vertices, centered on their midpoint.
+     */
+    private static String mapPath(List<Point> vertices, Random random) {
+        Point start = vertices.get(random.nextInt(vertices.size()));
+        Point goal = vertices.get(random.nextInt(vertices.size()));
+        return String.format(Locale.ROOT, "/map/%f,%f,%d/%dx%d?startLon=%f&startLat=%f&goalLon=%f&goalLat=%f",
+                (start.getLon() + goal.getLon()) / 2, (start.getLat() + goal.getLat()) / 2, ZOOM, WIDTH, HEIGHT,
+                start.getLon(), start.getLat(), goal.getLon(), goal.getLat()
+        );
+    }
+
+    /**
+     * Returns a blank base map image, standing in for the remote map image API.
+     */
+    private static BufferedImage blank(Point center, int zoom, int width, int height, List<Point> locations) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(new Color(242, 239, 233));
+        g2d.fillRect(0, 0, width, height);
+        g2d.dispose();
+        return image;
+    }
+
+    /**
+     * A single pre-generated request and the endpoint it exercises.
+     */
+    private static class Workload {
+        private static final int SEARCH = 0;
+        private static final int MAP = 1;
+        private static final String[] ENDPOINTS = {"/search", "/map"};
+        private final int type;
+        private final HttpRequest request;
+
+        Workload(int type, URI uri) {
+            this.type = type;
+            this.request = HttpRequest.newBuilder(uri).GET().build();
+        }
+    }
+}
@@ -2,6 +2,9 @@ import graphs.shortestpaths.AStarSolver;
 import io.javalin.Javalin;
 import io.javalin.validation.JavalinValidation;
 import io.javalin.validation.Validator;
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
 import org.locationtech.spatial4j.context.SpatialContext;
 import org.locationtech.spatial4j.shape.Point;
 
@@ -9,10 +12,20 @@ import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
@@ -29,15 +42,41 @@ public class MapServer {
      * The OpenStreetMap XML file path. Downloaded from <a href="http://download.bbbike.org/osm/">BBBike</a>
      * using custom region selection.
      */
-    private static final String OSM_DB_PATH = "seattle.osm.gz";
+    static final String OSM_DB_PATH = "seattle.osm.gz";
     /**
      * The place-importance TSV data file path from OpenStreetMap.
      */
-    private static final String PLACES_PATH = "places.tsv.gz";
+    static final String PLACES_PATH = "places.tsv.gz";
     /**
      * Maximum number of autocomplete search results.
      */
     private static final int MAX_MATCHES = 10;
+    /**
+     * Maximum number of named places returned for a viewport.
+     */
+    private static final int MAX_PLACES = 100;
+    /**
+     * Maximum number of uncommon search prefixes whose responses are cached.
+     */
+    private static final int SEARCH_CACHE_CAPACITY = 10_000;
+    /**
+     * HTTP caching policy for search responses, which only change when the map data is reloaded.
+     */
+    private static final String SEARCH_CACHE_CONTROL = "public, max-age=3600";
+    /**
+     * Maximum number of typing sessions kept for incremental search, and how long an unused session is kept.
+     */
+    private static final int SEARCH_SESSION_CAPACITY = 10_000;
+    private static final long SEARCH_SESSION_TTL_NANOS = 60_000_000_000L;
+    /**
+     * Number of steps per degree to which search locations are rounded, so that searches from within about 1 km of
+     * each other share cached responses.
+     */
+    private static final double SEARCH_CENTER_SCALE = 100;
+    /**
+     * Longest session id accepted from a client.
+     */
+    private static final int MAX_SESSION_ID_LENGTH = 64;
     /**
      * The longitudinal distance per pixel when the map is centered on Seattle.
      */
@@ -46,34 +85,167 @@ public class MapServer {
      * The latitudinal distance per pixel when the map is centered on Seattle.
      */
     private static final double SEATTLE_ROOT_LATDPP = 0.23689728184;
+    /**
+     * Maximum number of routes computed concurrently.
+     */
+    private static final int ROUTE_CONCURRENCY = Runtime.getRuntime().availableProcessors();
+    /**
+     * Maximum number of route requests waiting for their turn before new route requests are rejected.
+     */
+    private static final int ROUTE_QUEUE_CAPACITY = 4 * ROUTE_CONCURRENCY;
+    /**
+     * Time budget for a route request in nanoseconds, after which the map is returned without the route.
+     */
+    private static final long ROUTE_DEADLINE_NANOS = 2_000_000_000L;
+    /**
+     * Registry of server metrics exported at {@code /metrics}.
+     */
+    private static final MetricsRegistry METRICS = new MetricsRegistry();
+    private static final Histogram MAP_LATENCY = METRICS.timer(
+            "huskymaps_request_duration_seconds", "Time to handle a request.", "endpoint", "/map"
+    );
+    private static final Histogram SEARCH_LATENCY = METRICS.timer(
+            "huskymaps_request_duration_seconds", "Time to handle a request.", "endpoint", "/search"
+    );
+    private static final Histogram SNAP_TIME = METRICS.timer(
+            "huskymaps_route_snap_duration_seconds", "Time to snap route endpoints to the closest vertices."
+    );
+    private static final Histogram ROUTE_TIME = METRICS.timer(
+            "huskymaps_route_search_duration_seconds", "Time to compute a route with A* search."
+    );
+    private static final Histogram ROUTE_SETTLED = METRICS.histogram(
+            "huskymaps_route_nodes_settled", "Vertices settled by A* search per route."
+    );
+    private static final Counter ROUTES_REJECTED = METRICS.counter(
+            "huskymaps_route_rejected_total", "Route requests rejected because the routing queue was full."
+    );
+    private static final Counter ROUTES_EXPIRED = METRICS.counter(
+            "huskymaps_route_deadline_exceeded_total", "Route requests served without a route after their deadline."
+    );
+    private static final Histogram IMAGE_FETCH_TIME = METRICS.timer(
+            "huskymaps_image_fetch_duration_seconds", "Time to fetch the base map image."
+    );
+    private static final Histogram PNG_ENCODE_TIME = METRICS.timer(
+            "huskymaps_png_encode_duration_seconds", "Time to encode the map image as PNG."
+    );
+    private static final Counter SEARCH_CACHE_HITS = METRICS.counter(
+            "huskymaps_search_cache_hits_total", "Search requests answered from the response cache."
+    );
+    private static final Counter SEARCH_CACHE_MISSES = METRICS.counter(
+            "huskymaps_search_cache_misses_total", "Search requests that required an autocomplete query."
+    );
+    private static final Histogram SEARCH_MATCHES = METRICS.histogram(
+            "huskymaps_search_matches", "Autocomplete matches returned per search."
+    );
+    private static final Histogram RELOAD_TIME = METRICS.timer(
+            "huskymaps_reload_duration_seconds", "Time to load and warm a new generation of map data."
+    );
+    private static final Counter RELOAD_FAILURES = METRICS.counter(
+            "huskymaps_reload_failures_total", "Map data reloads that failed and kept the current generation."
+    );
 
     public static void main(String[] args) throws Exception {
         SpatialContext context = SpatialContext.GEO;
-        MapGraph map = new MapGraph(OSM_DB_PATH, PLACES_PATH, context);
+        MapGraph map = load(context);
+        BaseMap baseMap = (center, zoom, width, height, locations) ->
+                ImageIO.read(url(center, zoom, width, height, locations));
+        start(map, context, port(), baseMap, () -> load(context));
+    }
+
+    /**
+     * Loads the map data from the snapshot file named by the {@code SNAPSHOT} environment variable if it exists, or
+     * from the original data files otherwise.
+     *
+     * @param context the spatial context for the map graph.
+     * @return the loaded map graph.
+     * @throws Exception if the map data cannot be loaded.
+     */
+    static MapGraph load(SpatialContext context) throws Exception {
+        String snapshot = System.getenv("SNAPSHOT");
+        if (snapshot != null && Files.exists(Path.of(snapshot))) {
+            return MapGraph.readSnapshot(snapshot, context);
+        }
+        return new MapGraph(OSM_DB_PATH, PLACES_PATH, context);
+    }
+
+    /**
+     * Starts serving the given map on the given port and returns the running server.
+     * <p>
+     * If the {@code RELOAD_TOKEN} environment variable is set, a {@code POST /reload} request bearing that token loads
+     * a new generation of map data in the background, warms its search cache, and then atomically swaps it in. Each
+     * request reads the current generation once and uses it throughout, so requests in flight finish on the old
+     * generation, which becomes garbage once they complete.
+     *
+     * @param initial the map graph to serve.
+     * @param context the spatial context of the map graph.
+     * @param port    the port to listen on, or 0 for any free port.
+     * @param baseMap the source of base map images.
+     * @param loader  the source of new map graphs for reloads.
+     * @return the running server.
+     */
+    static Javalin start(MapGraph initial, SpatialContext context, int port, BaseMap baseMap,
+                         Callable<MapGraph> loader) {
         Javalin app = Javalin.create(config -> {
             config.spaRoot.addFile("/", "index.html");
-        }).start(port());
+        }).start(port);
+        AtomicReference<Generation> generations = new AtomicReference<>(new Generation(1, initial));
+        AdmissionController routing = new AdmissionController(ROUTE_CONCURRENCY, ROUTE_QUEUE_CAPACITY);
         app.get("/map/{lon},{lat},{zoom}/{width}x{height}", ctx -> {
+            long requestStart = System.nanoTime();
+            MapGraph map = generations.get().map;
             double lon = ctx.pathParamAsClass("lon", Double.class).get();
             double lat = ctx.pathParamAsClass("lat", Double.class).get();
             int zoom = ctx.pathParamAsClass("zoom", Integer.class).get();
             int width = ctx.pathParamAsClass("width", Integer.class).get();
             int height = ctx.pathParamAsClass("height", Integer.class).get();
             Point center = context.getShapeFactory().pointLatLon(lat, lon);
-            List<Point> locations = map.getLocations(ctx.queryParam("term"), center);
-            BufferedImage image = ImageIO.read(url(center, zoom, width, height, locations));
             Validator<Double> startLon = ctx.queryParamAsClass("startLon", Double.class);
             Validator<Double> startLat = ctx.queryParamAsClass("startLat", Double.class);
             Validator<Double> goalLon = ctx.queryParamAsClass("goalLon", Double.class);
             Validator<Double> goalLat = ctx.queryParamAsClass("goalLat", Double.class);
+            List<Point> route = List.of();
             if (JavalinValidation.collectErrors(startLon, startLat, goalLon, goalLat).isEmpty()) {
-                // Overlay route if the route start and goal are defined.
-                Point start = context.getShapeFactory().pointLatLon(startLat.get(), startLon.get());
-                Point goal = context.getShapeFactory().pointLatLon(goalLat.get(), goalLon.get());
-                List<Point> route = new AStarSolver<>(map, map.closest(start), map.closest(goal)).solution();
+                // Compute the route first so that rejected requests do no other work.
+                long deadline = requestStart + ROUTE_DEADLINE_NANOS;
+                AdmissionController.Admission admission = routing.acquire(deadline);
+                if (admission == AdmissionController.Admission.REJECTED) {
+                    ROUTES_REJECTED.increment();
+                    ctx.status(503).result("Too many route requests, try again later");
+                    return;
+                } else if (admission == AdmissionController.Admission.EXPIRED) {
+                    ROUTES_EXPIRED.increment();
+                } else {
+                    try {
+                        long snapStart = System.nanoTime();
+                        Point start = context.getShapeFactory().pointLatLon(startLat.get(), startLon.get());
+                        Point goal = context.getShapeFactory().pointLatLon(goalLat.get(), goalLon.get());
+                        start = map.closest(start);
+                        goal = map.closest(goal);
+                        SNAP_TIME.recordSince(snapStart);
+                        long routeStart = System.nanoTime();
+                        AStarSolver<Point> solver = new AStarSolver<>(map, start, goal, deadline - routeStart);
+                        route = solver.solution();
+                        ROUTE_TIME.recordSince(routeStart);
+                        ROUTE_SETTLED.record(solver.settled());
+                        if (!solver.isComplete()) {
+                            // Serve the map without the route rather than keep the client waiting.
+                            ROUTES_EXPIRED.increment();
+                        }
+                    } finally {
+                        routing.release();
+                    }
+                }
+            }
+            double lonDPP = SEATTLE_ROOT_LONDPP / Math.pow(2, zoom);
+            double latDPP = SEATTLE_ROOT_LATDPP / Math.pow(2, zoom);
+            List<Point> locations = map.getLocations(
+                    ctx.queryParam("term"), center, lonDPP * width / 2, latDPP * height / 2
+            );
+            long fetchStart = System.nanoTime();
+            BufferedImage image = baseMap.image(center, zoom, width, height, locations);
+            IMAGE_FETCH_TIME.recordSince(fetchStart);
+            if (!route.isEmpty()) {
                 // Convert route to xPoints and yPoints for Graphics2D.drawPolyline
-                double lonDPP = SEATTLE_ROOT_LONDPP / Math.pow(2, zoom);
-                double latDPP = SEATTLE_ROOT_LATDPP / Math.pow(2, zoom);
                 int[] xPoints = new int[route.size()];
                 int[] yPoints = new int[route.size()];
                 int i = 0;
@@ -94,18 +266,121 @@ public class MapServer {
                 g2d.drawPolyline(xPoints, yPoints, xPoints.length);
                 g2d.dispose();
             }
+            long encodeStart = System.nanoTime();
             ByteArrayOutputStream os = new ByteArrayOutputStream();
             ImageIO.write(image, "png", os);
+            PNG_ENCODE_TIME.recordSince(encodeStart);
             ctx.result(Base64.getEncoder().encode(os.toByteArray()));
+            MAP_LATENCY.recordSince(requestStart);
         });
         app.get("/search", ctx -> {
-            List<CharSequence> result = map.getLocationsByPrefix(ctx.queryParam("term"));
-            if (result.size() > MAX_MATCHES) {
-                ctx.json(result.subList(0, MAX_MATCHES));
+            long requestStart = System.nanoTime();
+            Generation generation = generations.get();
+            String term = ctx.queryParam("term");
+            String header = ctx.header("X-Search-Session");
+            String id = header == null || header.length() > MAX_SESSION_ID_LENGTH ? null : header;
+            SearchCache.Response response;
+            if (ctx.queryParam("lon") != null || ctx.queryParam("lat") != null) {
+                double lon = ctx.queryParamAsClass("lon", Double.class)
+                        .check(value -> value >= -180 && value <= 180, "lon must be between -180 and 180").get();
+                double lat = ctx.queryParamAsClass("lat", Double.class)
+                        .check(value -> value >= -90 && value <= 90, "lat must be between -90 and 90").get();
+                // Matches depend on the location, so cache them by prefix and rounded location.
+                long lonSteps = Math.round(lon * SEARCH_CENTER_SCALE);
+                long latSteps = Math.round(lat * SEARCH_CENTER_SCALE);
+                Point center = context.getShapeFactory().pointLatLon(
+                        latSteps / SEARCH_CENTER_SCALE, lonSteps / SEARCH_CENTER_SCALE
+                );
+                response = generation.searches.get(term, lonSteps + "," + latSteps,
+                        prefix -> generation.map.getLocationsByPrefixNear(
+                                prefix, MAX_MATCHES, center, generation.session(id)
+                        )
+                );
+            } else if (id == null) {
+                response = generation.searches.get(term);
+            } else {
+                // Sessions are only used to compute a response, so only look one up on a cache miss.
+                response = generation.searches.get(term, prefix -> generation.map.getLocationsByPrefix(
+                        prefix, MAX_MATCHES, generation.session(id)
+                ));
+            }
+            SEARCH_MATCHES.record(response.matches);
+            ctx.header("Cache-Control", SEARCH_CACHE_CONTROL);
+            ctx.header("ETag", response.etag);
+            if (response.etag.equals(ctx.header("If-None-Match"))) {
+                ctx.status(304);
             } else {
-                ctx.json(result);
+                ctx.contentType("application/json");
+                ctx.result(response.json);
             }
+            SEARCH_LATENCY.recordSince(requestStart);
+        });
+        app.get("/places/{lon},{lat},{zoom}/{width}x{height}", ctx -> {
+            double lon = ctx.pathParamAsClass("lon", Double.class).get();
+            double lat = ctx.pathParamAsClass("lat", Double.class).get();
+            int zoom = ctx.pathParamAsClass("zoom", Integer.class).get();
+            int width = ctx.pathParamAsClass("width", Integer.class).get();
+            int height = ctx.pathParamAsClass("height", Integer.class).get();
+            Point center = context.getShapeFactory().pointLatLon(lat, lon);
+            double lonDPP = SEATTLE_ROOT_LONDPP / Math.pow(2, zoom);
+            double latDPP = SEATTLE_ROOT_LATDPP / Math.pow(2, zoom);
+            MapGraph map = generations.get().map;
+            ctx.json(map.getPlacesWithin(center, lonDPP * width / 2, latDPP * height / 2, MAX_PLACES));
+        });
+        app.get("/reverse/{lon},{lat}", ctx -> {
+            double lon = ctx.pathParamAsClass("lon", Double.class).get();
+            double lat = ctx.pathParamAsClass("lat", Double.class).get();
+            int k = ctx.queryParamAsClass("k", Integer.class)
+                    .check(value -> value > 0 && value <= MAX_PLACES, "k must be between 1 and " + MAX_PLACES)
+                    .getOrDefault(1);
+            Point target = context.getShapeFactory().pointLatLon(lat, lon);
+            ctx.json(generations.get().map.getNearestPlaces(target, k, ctx.queryParam("term")));
         });
+        String reloadToken = System.getenv("RELOAD_TOKEN");
+        if (reloadToken != null) {
+            byte[] expected = ("Bearer " + reloadToken).getBytes(StandardCharsets.UTF_8);
+            AtomicBoolean reloading = new AtomicBoolean();
+            ExecutorService reloader = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "map-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            app.post("/reload", ctx -> {
+                String authorization = ctx.header("Authorization");
+                if (authorization == null
+                        || !MessageDigest.isEqual(expected, authorization.getBytes(StandardCharsets.UTF_8))) {
+                    ctx.status(403).result("Invalid reload token");
+                    return;
+                } else if (!reloading.compareAndSet(false, true)) {
+                    ctx.status(409).result("Reload already in progress");
+                    return;
+                }
+                long version = generations.get().version + 1;
+                reloader.execute(() -> {
+                    long reloadStart = System.nanoTime();
+                    try {
+                        // Build and warm the next generation before any request can see it.
+                        Generation next = new Generation(version, loader.call());
+                        generations.set(next);
+                        RELOAD_TIME.recordSince(reloadStart);
+                    } catch (Exception e) {
+                        // Keep serving the current generation and report which version failed to load.
+                        RELOAD_FAILURES.increment();
+                        System.err.println("Failed to load generation " + version + ", still serving generation "
+                                + generations.get().version + ": " + e);
+                        e.printStackTrace();
+                    } finally {
+                        reloading.set(false);
+                    }
+                });
+                ctx.status(202).result("Loading generation " + version);
+            });
+        }
+        app.get("/metrics", ctx -> {
+            ctx.contentType("text/plain; version=0.0.4; charset=utf-8");
+            ctx.result(METRICS.scrape());
+        });
+        return app;
     }
 
     /**
@@ -156,4 +431,60 @@ public class MapServer {
                 System.getenv("TOKEN")
         ));
     }
+
+    /**
+     * A version of the map data with the search cache and typing sessions derived from it, replaced as a unit on
+     * reload, so that nothing from an old generation outlives the requests using it.
+     */
+    private static class Generation {
+        private final long version;
+        private final MapGraph map;
+        private final SearchCache searches;
+        private final SearchSessions sessions;
+
+        /**
+         * Constructs a generation for the given map graph and warms its search cache.
+         *
+         * @param version the version number of this generation.
+         * @param map     the map graph to serve.
+         */
+        Generation(long version, MapGraph map) {
+            this.version = version;
+            this.map = map;
+            this.searches = new SearchCache(
+                    prefix -> map.getLocationsByPrefix(prefix, MAX_MATCHES), map.locationNames(),
+                    SEARCH_CACHE_CAPACITY, SEARCH_CACHE_HITS, SEARCH_CACHE_MISSES
+            );
+            this.sessions = new SearchSessions(SEARCH_SESSION_CAPACITY, SEARCH_SESSION_TTL_NANOS);
+        }
+
+        /**
+         * Returns the typing session with the given id, or null if the id is null.
+         *
+         * @param id the session id chosen by the client, or null.
+         * @return the session with the given id, or null.
+         */
+        MapGraph.SearchSession session(String id) {
+            return id == null ? null : sessions.get(id, System.nanoTime());
+        }
+    }
+
+    /**
+     * Source of base map images on which markers and routes are drawn.
+     */
+    @FunctionalInterface
+    interface BaseMap {
+        /**
+         * Returns the base map image centered on the given point.
+         *
+         * @param center    the center of the map image.
+         * @param zoom      the zoom level.
+         * @param width     the width of the window.
+         * @param height    the height of the window.
+         * @param locations the list of locations to mark (or null).
+         * @return the base map image.
+         * @throws IOException if the image cannot be retrieved.
+         */
+        BufferedImage image(Point center, int zoom, int width, int height, List<Point> locations) throws IOException;
+    }
 }
@@ -0,0 +1,19 @@
+import org.locationtech.spatial4j.context.SpatialContext;
+
+/**
+ * Write a snapshot of the {@code huskymaps} data for fast server startup and reload. The snapshot path is the first
+ * argument or else the {@code SNAPSHOT} environment variable read by {@link MapServer}.
+ *
+ * @see MapGraph#writeSnapshot(String)
+ */
+public class MapSnapshot {
+    public static void main(String[] args) throws Exception {
+        String path = args.length > 0 ? args[0] : System.getenv("SNAPSHOT");
+        if (path == null) {
+            throw new IllegalArgumentException("Usage: MapSnapshot <path> or set the SNAPSHOT environment variable");
+        }
+        MapGraph map = new MapGraph(MapServer.OSM_DB_PATH, MapServer.PLACES_PATH, SpatialContext.GEO);
+        map.writeSnapshot(path);
+        System.out.println("Wrote " + map + " to " + path);
+    }
+}
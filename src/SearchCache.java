@@ -0,0 +1,168 @@
+import autocomplete.NormalizedAutocomplete;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import metrics.Counter;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+
+/**
+ * Bounded cache of serialized {@code /search} responses keyed by normalized prefix. Every one- and two-character
+ * prefix of the searchable names is computed at construction and kept forever; other prefixes are kept in a
+ * least-recently-used cache. Search results never change after startup, so entries are never invalidated.
+ * <p>
+ * Searches whose matches also depend on a context, such as a location to rank nearby matches first, are kept in the
+ * same least-recently-used cache keyed by both the prefix and the context.
+ *
+ * @see MapServer
+ */
+class SearchCache {
+    /**
+     * Longest prefix length computed at construction.
+     */
+    private static final int WARM_PREFIX_LENGTH = 2;
+    private final ObjectMapper mapper;
+    private final Function<String, List<CharSequence>> search;
+    /**
+     * {@link Map} of pre-computed short prefixes to their responses. Never modified after construction.
+     */
+    private final Map<String, Response> warm;
+    /**
+     * Least-recently-used {@link Map} of other prefixes to their responses.
+     */
+    private final Map<String, Response> recent;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Constructs a cache in front of the given search function and pre-computes the short prefixes of the names.
+     *
+     * @param search   function returning the matches for a normalized prefix.
+     * @param names    the searchable names whose short prefixes are pre-computed.
+     * @param capacity maximum number of other prefixes to keep.
+     * @param hits     counter incremented for each cache hit.
+     * @param misses   counter incremented for each cache miss.
+     */
+    SearchCache(Function<String, List<CharSequence>> search, Collection<String> names, int capacity,
+                Counter hits, Counter misses) {
+        this.mapper = new ObjectMapper();
+        this.search = search;
+        this.hits = hits;
+        this.misses = misses;
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Response> eldest) {
+                return size() > capacity;
+            }
+        });
+        Map<String, Response> warm = new HashMap<>();
+        for (String name : names) {
+            for (int length = 1; length <= WARM_PREFIX_LENGTH; length += 1) {
+                String prefix = normalize(name.substring(0, Math.min(length, name.length())));
+                if (!prefix.isEmpty() && !warm.containsKey(prefix)) {
+                    warm.put(prefix, compute(prefix, search));
+                }
+            }
+        }
+        this.warm = Map.copyOf(warm);
+    }
+
+    /**
+     * Returns the response for the given prefix, computing and caching it if necessary.
+     *
+     * @param prefix the query prefix, or null.
+     * @return the response for the given prefix.
+     */
+    Response get(String prefix) {
+        return get(prefix, search);
+    }
+
+    /**
+     * Returns the response for the given prefix, computing it with the given search function and caching it if
+     * necessary. The function must return the same matches as the search function of this cache.
+     *
+     * @param prefix the query prefix, or null.
+     * @param search function returning the matches for a normalized prefix.
+     * @return the response for the given prefix.
+     */
+    Response get(String prefix, Function<String, List<CharSequence>> search) {
+        return get(prefix, null, search);
+    }
+
+    /**
+     * Returns the response for the given prefix in the given context, computing it with the given search function and
+     * caching it if necessary. Searches in the same context must have the same matches for the same prefix.
+     *
+     * @param prefix  the query prefix, or null.
+     * @param context what else the matches depend on, such as a rounded location, or null if only the prefix.
+     * @param search  function returning the matches for a normalized prefix.
+     * @return the response for the given prefix in the given context.
+     */
+    Response get(String prefix, String context, Function<String, List<CharSequence>> search) {
+        String normalized = normalize(prefix);
+        // Normalized prefixes never contain a newline, so it separates the prefix from the context.
+        String key = context == null ? normalized : normalized + '\n' + context;
+        Response response = context == null ? warm.get(key) : null;
+        if (response == null) {
+            response = recent.get(key);
+        }
+        if (response != null) {
+            hits.increment();
+            return response;
+        }
+        misses.increment();
+        response = compute(normalized, search);
+        recent.put(key, response);
+        return response;
+    }
+
+    /**
+     * Returns the cache key for the given prefix. Prefixes with the same key must have the same search results.
+     *
+     * @param prefix the query prefix, or null.
+     * @return the cache key for the given prefix.
+     */
+    static String normalize(String prefix) {
+        return NormalizedAutocomplete.fold(prefix);
+    }
+
+    /**
+     * Searches for and serializes the matches for the given normalized prefix.
+     */
+    private Response compute(String key, Function<String, List<CharSequence>> search) {
+        List<String> matches = search.apply(key).stream().map(CharSequence::toString).collect(Collectors.toList());
+        try {
+            return new Response(mapper.writeValueAsBytes(matches), matches.size());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize matches for " + key, e);
+        }
+    }
+
+    /**
+     * A serialized JSON response and its entity tag.
+     */
+    static class Response {
+        /**
+         * The JSON array of matching names.
+         */
+        final byte[] json;
+        /**
+         * The quoted strong entity tag identifying the JSON content.
+         */
+        final String etag;
+        /**
+         * The number of matching names.
+         */
+        final int matches;
+
+        Response(byte[] json, int matches) {
+            CRC32C checksum = new CRC32C();
+            checksum.update(json);
+            this.json = json;
+            this.etag = String.format("\"%x-%08x\"", json.length, checksum.getValue());
+            this.matches = matches;
+        }
+    }
+}
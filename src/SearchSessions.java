@@ -0,0 +1,80 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded map of client session ids to their {@link MapGraph.SearchSession}, so that each keystroke of a search
+ * continues from the previous one. Keeps at most a fixed number of sessions, evicting the least recently used, and
+ * drops sessions that have not been used for a fixed time. Each generation of map data has its own sessions, so they
+ * are dropped with it on reload.
+ * <p>
+ * Sessions are only looked up for searches that miss the {@link SearchCache}. Short prefixes are always cached, so
+ * the first search of a session usually walks the few characters of a cached prefix from the root.
+ *
+ * @see MapServer
+ */
+class SearchSessions {
+    /**
+     * Longest time in nanoseconds that an unused session is kept.
+     */
+    private final long ttlNanos;
+    /**
+     * Least-recently-used {@link Map} of session ids to their sessions. Guarded by this.
+     */
+    private final Map<String, Session> sessions;
+
+    /**
+     * Constructs an empty map of sessions.
+     *
+     * @param capacity maximum number of sessions to keep.
+     * @param ttlNanos longest time in nanoseconds that an unused session is kept.
+     */
+    SearchSessions(int capacity, long ttlNanos) {
+        this.ttlNanos = ttlNanos;
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the session with the given id, starting a new session if it does not exist or has expired.
+     *
+     * @param id  the session id chosen by the client.
+     * @param now the current time from {@link System#nanoTime()}.
+     * @return the session with the given id.
+     */
+    synchronized MapGraph.SearchSession get(String id, long now) {
+        // Sessions are in order of last use, so the expired sessions come first.
+        Iterator<Session> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            Session entry = iterator.next();
+            if (now - entry.lastUsed < ttlNanos) {
+                break;
+            }
+            iterator.remove();
+        }
+        Session entry = sessions.computeIfAbsent(id, key -> new Session());
+        entry.lastUsed = now;
+        return entry.session;
+    }
+
+    /**
+     * Returns the number of sessions kept.
+     *
+     * @return the number of sessions kept.
+     */
+    synchronized int size() {
+        return sessions.size();
+    }
+
+    /**
+     * A session and the time it was last used.
+     */
+    private static class Session {
+        final MapGraph.SearchSession session = new MapGraph.SearchSession();
+        long lastUsed;
+    }
+}
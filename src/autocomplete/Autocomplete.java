@@ -1,7 +1,8 @@
 package autocomplete;
 
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Suggest exact-character prefix matches for any query {@link CharSequence}.
@@ -26,6 +27,61 @@ public interface Autocomplete {
      */
     List<CharSequence> allMatches(CharSequence prefix);
 
+    /**
+     * Returns up to the given number of autocompletion terms that match the given prefix, in the same order as
+     * {@link #allMatches(CharSequence)}. Stops searching once enough terms are found.
+     *
+     * @param prefix search query.
+     * @param limit  maximum number of terms to return.
+     * @return up to limit matching terms.
+     */
+    default List<CharSequence> allMatches(CharSequence prefix, int limit) {
+        List<CharSequence> result = new ArrayList<>();
+        Iterator<CharSequence> matches = matches(prefix);
+        while (result.size() < limit && matches.hasNext()) {
+            result.add(matches.next());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of autocompletion terms that match the given prefix. Implementations count without finding
+     * each match where they can, so the cost does not grow with the number of matches.
+     *
+     * @param prefix search query.
+     * @return the number of terms that {@link #allMatches(CharSequence)} would return.
+     */
+    default int countMatches(CharSequence prefix) {
+        return (int) stream(prefix).count();
+    }
+
+    /**
+     * Returns an iterator over the autocompletion terms that match the given prefix, in the same order as
+     * {@link #allMatches(CharSequence)}. Implementations find each term only when it is requested, so stopping the
+     * iteration early stops the search.
+     *
+     * @param prefix search query.
+     * @return an iterator over the matching terms.
+     */
+    default Iterator<CharSequence> matches(CharSequence prefix) {
+        return allMatches(prefix).iterator();
+    }
+
+    /**
+     * Returns a sequential stream of the autocompletion terms that match the given prefix, in the same order as
+     * {@link #allMatches(CharSequence)}. Terms are found only as the stream consumes them, so short-circuiting
+     * operations such as {@link Stream#limit(long)} stop the search.
+     *
+     * @param prefix search query.
+     * @return a stream of the matching terms.
+     */
+    default Stream<CharSequence> stream(CharSequence prefix) {
+        Spliterator<CharSequence> matches = Spliterators.spliteratorUnknownSize(
+                matches(prefix), Spliterator.ORDERED | Spliterator.NONNULL
+        );
+        return StreamSupport.stream(matches, false);
+    }
+
     /**
      * Returns true if and only if the given term matches the given prefix.
      *
@@ -34,10 +90,15 @@ public interface Autocomplete {
      * @return true if and only if the given term matches the given prefix.
      */
     static boolean isPrefixOf(CharSequence prefix, CharSequence term) {
-        if (prefix.length() <= term.length()) {
-            CharSequence part = term.subSequence(0, prefix.length());
-            return CharSequence.compare(prefix, part) == 0;
+        if (prefix.length() > term.length()) {
+            return false;
+        }
+        // Compare in place rather than through subSequence, which allocates on every check.
+        for (int i = 0; i < prefix.length(); i += 1) {
+            if (prefix.charAt(i) != term.charAt(i)) {
+                return false;
+            }
         }
-        return false;
+        return true;
     }
 }
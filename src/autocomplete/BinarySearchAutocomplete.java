@@ -1,6 +1,7 @@
 package autocomplete;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Binary search implementation of the {@link Autocomplete} interface.
@@ -9,49 +10,69 @@ import java.util.*;
  */
 public class BinarySearchAutocomplete implements Autocomplete {
     /**
-     * {@link List} of added autocompletion terms.
+     * {@link TermArena} of added autocompletion terms in sorted order, without duplicates.
      */
-    private final List<CharSequence> terms;
+    private TermArena terms;
 
     /**
      * Constructs an empty instance.
      */
     public BinarySearchAutocomplete() {
-        this.terms = new ArrayList<>();
+        this.terms = new TermArena();
     }
 
     @Override
     public void addAll(Collection<? extends CharSequence> terms) {
-        //throw new UnsupportedOperationException("Not implemented yet");
-        this.terms.addAll(terms);
-        Collections.sort(this.terms, CharSequence::compare);
+        CharSequence[] added = terms.toArray(new CharSequence[0]);
+        Arrays.sort(added, CharSequence::compare);
+        // Merge the sorted new terms into a new arena, skipping duplicates, which are adjacent in sorted order.
+        long length = 0;
+        for (CharSequence term : added) {
+            length += term.length();
+        }
+        TermArena merged = new TermArena(
+                this.terms.size() + added.length,
+                (int) Math.min(Integer.MAX_VALUE - 8, (long) this.terms.characters() + length)
+        );
+        int i = 0;
+        int j = 0;
+        while (i < this.terms.size() || j < added.length) {
+            if (j == added.length || (i < this.terms.size() && this.terms.compare(i, added[j]) <= 0)) {
+                if (merged.size() == 0 || merged.compare(merged.size() - 1, this.terms, i) != 0) {
+                    merged.add(this.terms, i);
+                }
+                i += 1;
+            } else {
+                if (merged.size() == 0 || merged.compare(merged.size() - 1, added[j]) != 0) {
+                    merged.add(added[j]);
+                }
+                j += 1;
+            }
+        }
+        this.terms = merged;
     }
 
     @Override
     public List<CharSequence> allMatches(CharSequence prefix) {
-        //throw new UnsupportedOperationException("Not implemented yet");
-        List<CharSequence> result = new ArrayList<>();
-        Set<CharSequence> record = new HashSet<>();
+        return allMatches(prefix, Integer.MAX_VALUE);
+    }
 
-        if(prefix == null || prefix.length() == 0){
-            return result;
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Collections.emptyIterator();
         }
+        TermArena terms = this.terms;
+        int start = terms.start(prefix);
+        return IntStream.range(start, terms.end(prefix, start)).<CharSequence>mapToObj(terms::get).iterator();
+    }
 
-        int pos = Collections.binarySearch(terms, prefix, CharSequence::compare);
-
-        int start = pos >= 0 ? pos : -(pos+1);
-
-        for(int i = start; i < terms.size(); i++) {
-            CharSequence tmp = terms.get(i);
-            if (!Autocomplete.isPrefixOf(prefix, tmp)) {
-                if(!record.contains(tmp)) {
-                    record.add(tmp);
-                    result.add(tmp);
-                }
-            } else {
-                break;
-            }
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
         }
-        return result;
+        int start = terms.start(prefix);
+        return terms.end(prefix, start) - start;
     }
 }
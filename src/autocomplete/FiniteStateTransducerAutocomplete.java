@@ -0,0 +1,584 @@
+package autocomplete;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Minimal acyclic finite-state transducer (FST) implementation of the {@link WeightedAutocomplete} interface. Terms
+ * with shared prefixes share the states for those prefixes, and terms with shared suffixes share the states for those
+ * suffixes, so the index for a large set of related terms such as place names is much smaller than the text itself.
+ * <p>
+ * States and transitions are stored in flat arrays rather than as objects. The transducer maps each term to its rank
+ * in lexicographic order: the output of a transition is the number of terms that are lexicographically smaller than
+ * any term reached through it from the same state, and the rank of a term is the sum of the outputs along its path.
+ * Terms starting with a prefix have consecutive ranks, so their weights are a contiguous range of the weight array.
+ * <p>
+ * The transducer is built in one pass over the sorted terms, minimizing each state as soon as no later term can add
+ * transitions to it (Daciuk et al., 2000). Adding terms rebuilds the transducer from the merged sorted terms, so terms
+ * should be added in as few batches as possible.
+ *
+ * @see WeightedAutocomplete
+ */
+public class FiniteStateTransducerAutocomplete implements WeightedAutocomplete {
+    /**
+     * Start state of the transducer.
+     */
+    private int root;
+    /**
+     * Index of the first transition of each state, plus the end of the last state's transitions.
+     */
+    private int[] firsts;
+    /**
+     * Number of terms accepted from each state.
+     */
+    private int[] counts;
+    /**
+     * Character of each transition. The transitions of each state are in increasing order of character.
+     */
+    private char[] labels;
+    /**
+     * Target state of each transition.
+     */
+    private int[] targets;
+    /**
+     * Output of each transition: the number of terms accepted from the same state before following it.
+     */
+    private int[] outputs;
+    /**
+     * Weight of each term indexed by rank.
+     */
+    private double[] weights;
+    /**
+     * Order in which each term was first added indexed by rank.
+     */
+    private int[] order;
+    /**
+     * Number of distinct terms ever added, used to number the insertion order of new terms.
+     */
+    private int added;
+
+    /**
+     * Constructs an empty instance.
+     */
+    public FiniteStateTransducerAutocomplete() {
+        this.root = 0;
+        this.firsts = new int[2];
+        this.counts = new int[1];
+        this.labels = new char[0];
+        this.targets = new int[0];
+        this.outputs = new int[0];
+        this.weights = new double[0];
+        this.order = new int[0];
+        this.added = 0;
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        addAll(terms, term -> 0);
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms, ToDoubleFunction<? super CharSequence> weight) {
+        Map<String, Double> weighted = new HashMap<>();
+        Map<String, Integer> addedOrder = new HashMap<>();
+        for (CharSequence term : terms) {
+            if (term.length() == 0) {
+                continue;
+            }
+            String key = term.toString();
+            weighted.put(key, weight.applyAsDouble(term));
+            addedOrder.putIfAbsent(key, addedOrder.size());
+        }
+        if (weighted.isEmpty()) {
+            return;
+        }
+        String[] sorted = weighted.keySet().toArray(new String[0]);
+        Arrays.sort(sorted);
+        // Merge the existing terms, already in sorted order, with the added terms.
+        int size = size();
+        List<String> merged = new ArrayList<>(size + sorted.length);
+        double[] mergedWeights = new double[size + sorted.length];
+        int[] mergedOrder = new int[size + sorted.length];
+        Iterator<CharSequence> existing = size == 0 ? Collections.emptyIterator() : new Matches(root, "");
+        String next = existing.hasNext() ? existing.next().toString() : null;
+        int rank = 0;
+        int i = 0;
+        while (next != null || i < sorted.length) {
+            int cmp = next == null ? 1 : i == sorted.length ? -1 : next.compareTo(sorted[i]);
+            int n = merged.size();
+            if (cmp <= 0) {
+                merged.add(next);
+                mergedWeights[n] = weights[rank];
+                mergedOrder[n] = order[rank];
+                next = existing.hasNext() ? existing.next().toString() : null;
+                rank += 1;
+            }
+            if (cmp >= 0) {
+                if (cmp > 0) {
+                    merged.add(sorted[i]);
+                    mergedOrder[n] = added + addedOrder.get(sorted[i]);
+                }
+                mergedWeights[n] = weighted.get(sorted[i]);
+                i += 1;
+            }
+        }
+        build(merged);
+        added += addedOrder.size();
+        weights = Arrays.copyOf(mergedWeights, merged.size());
+        order = Arrays.copyOf(mergedOrder, merged.size());
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        return allMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
+        int state = find(prefix);
+        if (state < 0) {
+            return Collections.emptyIterator();
+        }
+        return new Matches(state, prefix);
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        int state = find(prefix);
+        return state < 0 ? 0 : counts[state];
+    }
+
+    @Override
+    public List<CharSequence> topMatches(CharSequence prefix, int k) {
+        List<CharSequence> result = new ArrayList<>();
+        int state = find(prefix);
+        if (state < 0 || k <= 0) {
+            return result;
+        }
+        // The matching terms are the ranks from the rank of the prefix, so select the best k of their weights.
+        int start = rank(prefix);
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(k, counts[state]), (a, b) -> compare(b, a));
+        for (int rank = start; rank < start + counts[state]; rank += 1) {
+            if (best.size() < k) {
+                best.add(rank);
+            } else if (compare(rank, best.peek()) < 0) {
+                best.remove();
+                best.add(rank);
+            }
+        }
+        Integer[] ranks = best.toArray(new Integer[0]);
+        Arrays.sort(ranks, this::compare);
+        for (int rank : ranks) {
+            result.add(term(state, prefix, rank - start));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of terms in this index.
+     *
+     * @return the number of terms in this index.
+     */
+    public int size() {
+        return counts[root];
+    }
+
+    /**
+     * Returns the number of states in the minimal transducer, which is far fewer than the number of characters in all terms.
+     *
+     * @return the number of states in the minimal transducer.
+     */
+    public int states() {
+        return counts.length;
+    }
+
+    /**
+     * Returns the state reached by reading the prefix from the start state, or -1 if the prefix is empty or no term
+     * starts with the prefix.
+     */
+    private int find(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0 || size() == 0) {
+            return -1;
+        }
+        int state = root;
+        for (int i = 0; i < prefix.length() && state >= 0; i += 1) {
+            int transition = transition(state, prefix.charAt(i));
+            state = transition < 0 ? -1 : targets[transition];
+        }
+        return state;
+    }
+
+    /**
+     * Returns the rank of the first term starting with the prefix, assuming some term starts with the prefix.
+     */
+    private int rank(CharSequence prefix) {
+        int rank = 0;
+        int state = root;
+        for (int i = 0; i < prefix.length(); i += 1) {
+            int transition = transition(state, prefix.charAt(i));
+            rank += outputs[transition];
+            state = targets[transition];
+        }
+        return rank;
+    }
+
+    /**
+     * Returns the index of the transition from the state with the given character, or -1 if there is none.
+     */
+    private int transition(int state, char c) {
+        int low = firsts[state];
+        int high = firsts[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (labels[mid] < c) {
+                low = mid + 1;
+            } else if (labels[mid] > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if and only if the state accepts the empty string, so that the path to it spells a term.
+     */
+    private boolean isFinal(int state) {
+        return isFinal(state, firsts, counts, outputs);
+    }
+
+    /**
+     * Returns true if and only if the state in the given arrays accepts the empty string.
+     */
+    private static boolean isFinal(int state, int[] firsts, int[] counts, int[] outputs) {
+        // Only an accepting state counts a term before its first transition, and every state without transitions
+        // accepts, except the start state of an empty transducer.
+        if (firsts[state] == firsts[state + 1]) {
+            return counts[state] > 0;
+        }
+        return outputs[firsts[state]] > 0;
+    }
+
+    /**
+     * Returns the term with the given rank among the terms accepted from the state, reached by reading the prefix.
+     */
+    private CharSequence term(int state, CharSequence prefix, int rank) {
+        StringBuilder result = new StringBuilder(prefix);
+        while (rank > 0 || !isFinal(state)) {
+            // Follow the last transition whose output does not exceed the remaining rank.
+            int low = firsts[state];
+            int high = firsts[state + 1] - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (outputs[mid] <= rank) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            rank -= outputs[low];
+            result.append(labels[low]);
+            state = targets[low];
+        }
+        return result.toString();
+    }
+
+    /**
+     * Compares two ranks so that higher weights come first, breaking ties by insertion order.
+     */
+    private int compare(int a, int b) {
+        int cmp = Double.compare(weights[b], weights[a]);
+        if (cmp == 0) {
+            return Integer.compare(order[a], order[b]);
+        }
+        return cmp;
+    }
+
+    /**
+     * Replaces the transducer with the minimal transducer for the given distinct terms in sorted order.
+     */
+    private void build(List<String> sorted) {
+        Builder builder = new Builder();
+        List<Builder.Pending> path = new ArrayList<>();
+        path.add(builder.new Pending());
+        String previous = "";
+        for (String term : sorted) {
+            int common = 0;
+            while (common < previous.length() && common < term.length()
+                    && previous.charAt(common) == term.charAt(common)) {
+                common += 1;
+            }
+            // No later term shares more than the common prefix, so the states after it are final and can be merged.
+            for (int d = previous.length(); d > common; d -= 1) {
+                path.get(d - 1).target(builder.freeze(path.get(d)));
+            }
+            for (int d = common; d < term.length(); d += 1) {
+                path.get(d).add(term.charAt(d));
+                if (d + 1 == path.size()) {
+                    path.add(builder.new Pending());
+                } else {
+                    path.get(d + 1).clear();
+                }
+            }
+            path.get(term.length()).accepts = true;
+            previous = term;
+        }
+        for (int d = previous.length(); d > 0; d -= 1) {
+            path.get(d - 1).target(builder.freeze(path.get(d)));
+        }
+        root = builder.freeze(path.get(0));
+        firsts = Arrays.copyOf(builder.firsts, builder.states + 1);
+        counts = Arrays.copyOf(builder.counts, builder.states);
+        labels = Arrays.copyOf(builder.labels, builder.transitions);
+        targets = Arrays.copyOf(builder.targets, builder.transitions);
+        outputs = Arrays.copyOf(builder.outputs, builder.transitions);
+    }
+
+    /**
+     * Iterator over the terms accepted from a state in lexicographic order. Only walks as far as needed to find the
+     * next term.
+     */
+    private class Matches implements Iterator<CharSequence> {
+        /**
+         * Stack of the states on the path to the current state, each with the index of its next transition to follow.
+         */
+        private int[] states = new int[16];
+        private int[] cursors = new int[16];
+        private int top;
+        /**
+         * Characters on the path to the current state.
+         */
+        private final StringBuilder path;
+        private CharSequence next;
+
+        /**
+         * Constructs an iterator over the terms accepted from the state, reached by reading the prefix.
+         *
+         * @param state  the state reached by reading the prefix.
+         * @param prefix the prefix leading to the state.
+         */
+        Matches(int state, CharSequence prefix) {
+            this.path = new StringBuilder(prefix);
+            this.top = 0;
+            push(state);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public CharSequence next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            CharSequence result = next;
+            next = null;
+            advance();
+            return result;
+        }
+
+        /**
+         * Follows transitions depth first until the next accepting state is found or every path has been followed.
+         */
+        private void advance() {
+            while (next == null && top > 0) {
+                int state = states[top - 1];
+                int transition = cursors[top - 1];
+                if (transition == firsts[state + 1]) {
+                    top -= 1;
+                    if (top > 0) {
+                        path.setLength(path.length() - 1);
+                    }
+                } else {
+                    cursors[top - 1] = transition + 1;
+                    path.append(labels[transition]);
+                    push(targets[transition]);
+                }
+            }
+        }
+
+        /**
+         * Pushes the state onto the path, making its path the next term if it accepts.
+         */
+        private void push(int state) {
+            if (top == states.length) {
+                states = Arrays.copyOf(states, 2 * top);
+                cursors = Arrays.copyOf(cursors, 2 * top);
+            }
+            states[top] = state;
+            cursors[top] = firsts[state];
+            top += 1;
+            if (isFinal(state)) {
+                next = path.toString();
+            }
+        }
+    }
+
+    /**
+     * Growable arrays of frozen states, with a hash table of frozen states for finding an equivalent state.
+     */
+    private static class Builder {
+        private int states = 0;
+        private int transitions = 0;
+        private int[] firsts = new int[16];
+        private int[] counts = new int[16];
+        private char[] labels = new char[16];
+        private int[] targets = new int[16];
+        private int[] outputs = new int[16];
+        /**
+         * Open-addressing hash table of frozen states, where -1 marks an empty slot.
+         */
+        private int[] register = filled(16);
+
+        /**
+         * Returns a frozen state equivalent to the pending state, freezing it if there is none.
+         *
+         * @param pending a state whose transitions all lead to frozen states.
+         * @return the frozen state equivalent to the pending state.
+         */
+        int freeze(Pending pending) {
+            int slot = pending.hashCode() & (register.length - 1);
+            while (register[slot] >= 0) {
+                if (pending.matches(register[slot])) {
+                    return register[slot];
+                }
+                slot = (slot + 1) & (register.length - 1);
+            }
+            if (states + 2 > firsts.length) {
+                firsts = Arrays.copyOf(firsts, 2 * firsts.length);
+                counts = Arrays.copyOf(counts, 2 * counts.length);
+            }
+            if (transitions + pending.size > labels.length) {
+                int capacity = Math.max(2 * labels.length, transitions + pending.size);
+                labels = Arrays.copyOf(labels, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                outputs = Arrays.copyOf(outputs, capacity);
+            }
+            int state = states;
+            int count = pending.accepts ? 1 : 0;
+            for (int i = 0; i < pending.size; i += 1) {
+                labels[transitions] = pending.labels[i];
+                targets[transitions] = pending.targets[i];
+                outputs[transitions] = count;
+                count += counts[pending.targets[i]];
+                transitions += 1;
+            }
+            counts[state] = count;
+            states += 1;
+            firsts[states] = transitions;
+            register[slot] = state;
+            if (2 * states > register.length) {
+                rehash();
+            }
+            return state;
+        }
+
+        /**
+         * Doubles the size of the hash table of frozen states.
+         */
+        private void rehash() {
+            register = filled(2 * register.length);
+            for (int state = 0; state < states; state += 1) {
+                int slot = hash(state) & (register.length - 1);
+                while (register[slot] >= 0) {
+                    slot = (slot + 1) & (register.length - 1);
+                }
+                register[slot] = state;
+            }
+        }
+
+        /**
+         * Returns the hash code of the frozen state, equal to that of any equivalent pending state.
+         */
+        private int hash(int state) {
+            int result = accepts(state) ? 1 : 0;
+            for (int t = firsts[state]; t < firsts[state + 1]; t += 1) {
+                result = 31 * (31 * result + labels[t]) + targets[t];
+            }
+            return result * 0x9E3779B9;
+        }
+
+        /**
+         * Returns true if and only if the frozen state accepts the empty string.
+         */
+        private boolean accepts(int state) {
+            return isFinal(state, firsts, counts, outputs);
+        }
+
+        /**
+         * Returns an array of the given length filled with -1.
+         */
+        private static int[] filled(int length) {
+            int[] result = new int[length];
+            Arrays.fill(result, -1);
+            return result;
+        }
+
+        /**
+         * A state on the path of the most recent term that may still gain transitions.
+         */
+        class Pending {
+            private boolean accepts = false;
+            private int size = 0;
+            private char[] labels = new char[4];
+            private int[] targets = new int[4];
+
+            /**
+             * Adds a transition with the given character whose target is not yet frozen.
+             */
+            void add(char label) {
+                if (size == labels.length) {
+                    labels = Arrays.copyOf(labels, 2 * size);
+                    targets = Arrays.copyOf(targets, 2 * size);
+                }
+                labels[size] = label;
+                targets[size] = -1;
+                size += 1;
+            }
+
+            /**
+             * Sets the target of the last transition to the given frozen state.
+             */
+            void target(int state) {
+                targets[size - 1] = state;
+            }
+
+            /**
+             * Removes every transition so that this state can be reused for a new term.
+             */
+            void clear() {
+                accepts = false;
+                size = 0;
+            }
+
+            /**
+             * Returns true if and only if the frozen state has the same transitions and finality as this state.
+             */
+            boolean matches(int state) {
+                if (firsts[state + 1] - firsts[state] != size || accepts(state) != accepts) {
+                    return false;
+                }
+                for (int i = 0; i < size; i += 1) {
+                    int t = firsts[state] + i;
+                    if (Builder.this.labels[t] != labels[i] || Builder.this.targets[t] != targets[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public int hashCode() {
+                int result = accepts ? 1 : 0;
+                for (int i = 0; i < size; i += 1) {
+                    result = 31 * (31 * result + labels[i]) + targets[i];
+                }
+                return result * 0x9E3779B9;
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package autocomplete;
+
+import java.util.*;
+
+/**
+ * Ternary search tree (TST) implementation of the {@link Autocomplete} interface that stores its nodes in parallel
+ * primitive arrays rather than as objects, so the tree takes a few bytes per node and nearby nodes are nearby in
+ * memory. Insertion and collection are iterative, so terms of any length can be added without deep recursion.
+ * <p>
+ * Each call to {@link #addAll(Collection)} sorts its terms and inserts them median first, so that a tree built from a
+ * single batch of terms is balanced at every level instead of degenerating into a linked list on sorted input.
+ *
+ * @see Autocomplete
+ * @see TernarySearchTreeAutocomplete
+ */
+public class FlatTernarySearchTreeAutocomplete implements Autocomplete {
+    /**
+     * Node index representing the absence of a node. The array entries at this index are never used.
+     */
+    private static final int NULL = 0;
+    /**
+     * Character of each node.
+     */
+    private char[] labels;
+    /**
+     * Left child of each node, for characters less than the node's character.
+     */
+    private int[] lo;
+    /**
+     * Middle child of each node, for the next character of terms with the node's character.
+     */
+    private int[] eq;
+    /**
+     * Right child of each node, for characters greater than the node's character.
+     */
+    private int[] hi;
+    /**
+     * Number of terms in the subtree rooted at each node, including the left and right subtrees.
+     */
+    private int[] counts;
+    /**
+     * Bitset of the nodes for the last character of a term.
+     */
+    private long[] terminals;
+    /**
+     * Number of array entries in use, including the unused entry for {@link #NULL}.
+     */
+    private int size;
+    /**
+     * The overall root of the tree, or {@link #NULL} if the tree is empty.
+     */
+    private int overallRoot;
+
+    /**
+     * Constructs an empty instance.
+     */
+    public FlatTernarySearchTreeAutocomplete() {
+        this.labels = new char[16];
+        this.lo = new int[16];
+        this.eq = new int[16];
+        this.hi = new int[16];
+        this.counts = new int[16];
+        this.terminals = new long[1];
+        this.size = 1;
+        this.overallRoot = NULL;
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        String[] sorted = terms.stream()
+                .filter(term -> term.length() > 0)
+                .map(CharSequence::toString)
+                .sorted()
+                .distinct()
+                .toArray(String[]::new);
+        // Insert the median of each range before the terms on either side of it.
+        Deque<int[]> ranges = new ArrayDeque<>();
+        ranges.push(new int[]{0, sorted.length});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            if (range[0] < range[1]) {
+                int mid = (range[0] + range[1]) >>> 1;
+                insert(sorted[mid]);
+                ranges.push(new int[]{mid + 1, range[1]});
+                ranges.push(new int[]{range[0], mid});
+            }
+        }
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        return allMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0 || overallRoot == NULL) {
+            return Collections.emptyIterator();
+        }
+        int node = find(prefix);
+        if (node == NULL) {
+            return Collections.emptyIterator();
+        }
+        return new Matches(eq[node], prefix, isTerminal(node));
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0 || overallRoot == NULL) {
+            return 0;
+        }
+        int node = find(prefix);
+        if (node == NULL) {
+            return 0;
+        }
+        return (isTerminal(node) ? 1 : 0) + counts[eq[node]];
+    }
+
+    /**
+     * Returns the number of nodes in the tree.
+     *
+     * @return the number of nodes in the tree.
+     */
+    public int nodes() {
+        return size - 1;
+    }
+
+    /**
+     * Marks the node for the last character of the given non-empty term as terminal, adding nodes as necessary.
+     */
+    private void insert(CharSequence term) {
+        if (overallRoot == NULL) {
+            overallRoot = newNode(term.charAt(0));
+        }
+        // Every node on the path to a new term gains a term in its subtree.
+        int added = isTerminal(find(term)) ? 0 : 1;
+        int node = overallRoot;
+        int i = 0;
+        while (true) {
+            counts[node] += added;
+            char c = term.charAt(i);
+            // Allocating a node may replace the arrays, so allocate before choosing the array to update.
+            if (c < labels[node]) {
+                if (lo[node] == NULL) {
+                    int child = newNode(c);
+                    lo[node] = child;
+                }
+                node = lo[node];
+            } else if (c > labels[node]) {
+                if (hi[node] == NULL) {
+                    int child = newNode(c);
+                    hi[node] = child;
+                }
+                node = hi[node];
+            } else if (i + 1 < term.length()) {
+                i += 1;
+                if (eq[node] == NULL) {
+                    int child = newNode(term.charAt(i));
+                    eq[node] = child;
+                }
+                node = eq[node];
+            } else {
+                terminals[node >>> 6] |= 1L << node;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the node for the last character of the given non-empty prefix, or {@link #NULL} if no term starts with
+     * the prefix.
+     */
+    private int find(CharSequence prefix) {
+        int node = overallRoot;
+        int i = 0;
+        while (node != NULL) {
+            char c = prefix.charAt(i);
+            if (c < labels[node]) {
+                node = lo[node];
+            } else if (c > labels[node]) {
+                node = hi[node];
+            } else if (i + 1 < prefix.length()) {
+                node = eq[node];
+                i += 1;
+            } else {
+                return node;
+            }
+        }
+        return NULL;
+    }
+
+    /**
+     * Returns true if and only if the node is for the last character of a term.
+     */
+    private boolean isTerminal(int node) {
+        return (terminals[node >>> 6] & (1L << node)) != 0;
+    }
+
+    /**
+     * Returns the index of a new node with the given character and no children, growing the arrays if necessary.
+     */
+    private int newNode(char label) {
+        if (size == labels.length) {
+            labels = Arrays.copyOf(labels, 2 * size);
+            lo = Arrays.copyOf(lo, 2 * size);
+            eq = Arrays.copyOf(eq, 2 * size);
+            hi = Arrays.copyOf(hi, 2 * size);
+            counts = Arrays.copyOf(counts, 2 * size);
+            terminals = Arrays.copyOf(terminals, (2 * size + 63) >>> 6);
+        }
+        labels[size] = label;
+        size += 1;
+        return size - 1;
+    }
+
+    /**
+     * Iterator over the terms in a subtree in lexicographic order. Only walks as far as needed to find the next term.
+     */
+    private class Matches implements Iterator<CharSequence> {
+        /**
+         * Stack of nodes, each with the length of the path before its character and whether to visit the node itself
+         * rather than expand its subtree. Expanding a node pushes its right subtree, a visit to the node itself, and
+         * its left subtree; visiting a node pushes its middle subtree.
+         */
+        private int[] nodes = new int[16];
+        private int[] depths = new int[16];
+        private boolean[] visits = new boolean[16];
+        private int top;
+        /**
+         * Characters on the path to the most recently visited node.
+         */
+        private final StringBuilder path;
+        private CharSequence next;
+
+        /**
+         * Constructs an iterator over the prefix, if it is a term, followed by the terms in the subtree.
+         *
+         * @param root     the root of the subtree, or {@link #NULL}.
+         * @param prefix   the characters on the path to the subtree.
+         * @param terminal whether the prefix itself is a term.
+         */
+        Matches(int root, CharSequence prefix, boolean terminal) {
+            this.path = new StringBuilder(prefix);
+            this.next = terminal ? prefix.toString() : null;
+            this.top = 0;
+            push(root, prefix.length(), false);
+            if (next == null) {
+                advance();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public CharSequence next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            CharSequence result = next;
+            next = null;
+            advance();
+            return result;
+        }
+
+        /**
+         * Walks the tree in order until the next term is found or every node has been visited.
+         */
+        private void advance() {
+            while (next == null && top > 0) {
+                top -= 1;
+                int node = nodes[top];
+                int depth = depths[top];
+                if (visits[top]) {
+                    path.setLength(depth);
+                    path.append(labels[node]);
+                    push(eq[node], depth + 1, false);
+                    if (isTerminal(node)) {
+                        next = path.toString();
+                    }
+                } else {
+                    push(hi[node], depth, false);
+                    push(node, depth, true);
+                    push(lo[node], depth, false);
+                }
+            }
+        }
+
+        /**
+         * Pushes the node, unless it is {@link #NULL}, to be expanded or visited.
+         */
+        private void push(int node, int depth, boolean visit) {
+            if (node == NULL) {
+                return;
+            } else if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * top);
+                depths = Arrays.copyOf(depths, 2 * top);
+                visits = Arrays.copyOf(visits, 2 * top);
+            }
+            nodes[top] = node;
+            depths[top] = depth;
+            visits[top] = visit;
+            top += 1;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package autocomplete;
+
+import java.util.*;
+
+/**
+ * {@link TopKTernarySearchTreeAutocomplete} that also suggests terms starting with a prefix that is within a small
+ * number of edits (insertions, deletions or substitutions) of the query. The search walks the tree while simulating a
+ * Levenshtein automaton for the query as one row of the edit distance table per tree level, so a whole subtree is
+ * skipped as soon as every entry in its row exceeds the edit bound.
+ *
+ * @see TopKTernarySearchTreeAutocomplete
+ */
+public class FuzzyTernarySearchTreeAutocomplete extends TopKTernarySearchTreeAutocomplete {
+    /**
+     * Maximum number of edits supported by {@link #fuzzyMatches(CharSequence, int, int)}.
+     */
+    public static final int MAX_EDITS = 2;
+
+    /**
+     * Constructs an empty instance with the default cache capacity.
+     */
+    public FuzzyTernarySearchTreeAutocomplete() {
+        super();
+    }
+
+    /**
+     * Constructs an empty instance that answers top-k queries for k up to the given capacity from its cache.
+     *
+     * @param capacity number of best terms cached in each node.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public FuzzyTernarySearchTreeAutocomplete(int capacity) {
+        super(capacity);
+    }
+
+    /**
+     * Returns up to k terms that start with a prefix within the given number of edits of the query. Terms are ordered
+     * by their edit distance, then in descending order of weight, then in the order they were first added.
+     *
+     * @param prefix   search query.
+     * @param maxEdits maximum number of edits between the query and a prefix of each term.
+     * @param k        maximum number of terms to return.
+     * @return up to k matching terms in ascending order of edit distance and descending order of weight.
+     * @throws IllegalArgumentException if maxEdits is negative or greater than {@value #MAX_EDITS}.
+     */
+    public List<CharSequence> fuzzyMatches(CharSequence prefix, int maxEdits, int k) {
+        if (maxEdits < 0 || maxEdits > MAX_EDITS) {
+            throw new IllegalArgumentException("Edits must be between 0 and " + MAX_EDITS + ": " + maxEdits);
+        }
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0 || k <= 0) {
+            return result;
+        }
+        List<Node> roots = new ArrayList<>();
+        List<Integer> distances = new ArrayList<>();
+        collect(prefix, maxEdits, roots, distances);
+        if (k > capacity) {
+            // Find the smallest distance of every matching term, then sort them all.
+            Map<Integer, Integer> matches = new HashMap<>();
+            for (int i = 0; i < roots.size(); i += 1) {
+                int distance = distances.get(i);
+                Node root = roots.get(i);
+                if (root.term >= 0) {
+                    matches.merge(root.term, distance, Math::min);
+                }
+                forEachTerm(root.mid, id -> matches.merge(id, distance, Math::min));
+            }
+            matches.keySet().stream()
+                    .sorted(Comparator.<Integer>comparingInt(matches::get).thenComparing(this::compare))
+                    .limit(k)
+                    .forEach(id -> result.add(terms.get(id)));
+            return result;
+        }
+        // Terms with distance e are in a subtree matched within e edits but not in one matched within fewer. If such a
+        // term is missing from a cached list, the list holds at least capacity >= k better terms within e edits.
+        Set<Integer> seen = new HashSet<>();
+        for (int e = 0; e <= maxEdits && result.size() < k; e += 1) {
+            List<Integer> candidates = new ArrayList<>();
+            for (int i = 0; i < roots.size(); i += 1) {
+                if (distances.get(i) <= e) {
+                    Node root = roots.get(i);
+                    for (int id : merge(root.term, root.mid == null ? NONE : root.mid.best, NONE, NONE)) {
+                        if (!seen.contains(id)) {
+                            candidates.add(id);
+                        }
+                    }
+                }
+            }
+            candidates.sort(this::compare);
+            for (int i = 0; i < candidates.size() && result.size() < k; i += 1) {
+                if (seen.add(candidates.get(i))) {
+                    result.add(terms.get(candidates.get(i)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds every node whose path from the root is within maxEdits of the prefix, along with that edit distance. The
+     * terms in the subtree of each node are all within that distance of the prefix.
+     */
+    private void collect(CharSequence prefix, int maxEdits, List<Node> roots, List<Integer> distances) {
+        int m = prefix.length();
+        int[] initial = new int[m + 1];
+        for (int i = 0; i <= m; i += 1) {
+            initial[i] = i;
+        }
+        // Each node is paired with the edit distance row for the path leading to (but not including) its character.
+        Deque<Node> nodes = new ArrayDeque<>();
+        Deque<int[]> rows = new ArrayDeque<>();
+        if (overallRoot != null && m <= maxEdits) {
+            // Deleting the whole prefix matches every term, so add a stand-in parent of the overall root.
+            Node everything = new Node((char) 0);
+            everything.mid = overallRoot;
+            roots.add(everything);
+            distances.add(m);
+        }
+        if (overallRoot != null) {
+            nodes.push(overallRoot);
+            rows.push(initial);
+        }
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            int[] parent = rows.pop();
+            if (node.left != null) {
+                nodes.push(node.left);
+                rows.push(parent);
+            }
+            if (node.right != null) {
+                nodes.push(node.right);
+                rows.push(parent);
+            }
+            int[] row = new int[m + 1];
+            row[0] = parent[0] + 1;
+            int min = row[0];
+            for (int i = 1; i <= m; i += 1) {
+                int substitution = parent[i - 1] + (prefix.charAt(i - 1) == node.data ? 0 : 1);
+                row[i] = Math.min(substitution, Math.min(row[i - 1], parent[i]) + 1);
+                min = Math.min(min, row[i]);
+            }
+            if (row[m] <= maxEdits) {
+                roots.add(node);
+                distances.add(row[m]);
+            }
+            // Entries in deeper rows are never smaller than the minimum of this row, so only descend if a deeper node
+            // could match the prefix, or match it with fewer edits than this node.
+            if (node.mid != null && min <= maxEdits && (row[m] > maxEdits || min < row[m])) {
+                nodes.push(node.mid);
+                rows.push(row);
+            }
+        }
+    }
+}
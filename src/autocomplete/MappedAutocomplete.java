@@ -0,0 +1,375 @@
+package autocomplete;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Read-only {@link WeightedAutocomplete} that queries an index file through a memory-mapped buffer. Terms are stored
+ * sorted, so the matches for a prefix are found by binary search directly against the file, and opening an index only
+ * reads its header, taking constant time and heap regardless of the number of terms. Only returned terms are copied
+ * onto the heap.
+ * <p>
+ * An index file is written by {@link #write(Path, Collection, ToDoubleFunction)} and consists of a header followed by
+ * these sections, all big-endian:
+ * <ol>
+ *     <li>Offset table: the start of each term in the term blob, plus the end of the last term.</li>
+ *     <li>Weight column: the weight of each term.</li>
+ *     <li>Order column: the order each term was first added, for breaking ties between equal weights.</li>
+ *     <li>Max tree: a segment tree with the best term of each node's range, so the k best matches are found in
+ *     O(k log n) time without scanning every match.</li>
+ *     <li>Term blob: the UTF-16 characters of every term in sorted order.</li>
+ * </ol>
+ *
+ * @see WeightedAutocomplete
+ */
+public class MappedAutocomplete implements WeightedAutocomplete {
+    /**
+     * First bytes of every index file, "ACIX" in ASCII.
+     */
+    private static final int MAGIC = 0x41434958;
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Number of bytes in the header: the magic number, version, number of terms and number of characters.
+     */
+    private static final int HEADER = 16;
+    /**
+     * The mapped index file.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * View of the term blob.
+     */
+    private final CharBuffer chars;
+    /**
+     * Number of terms.
+     */
+    private final int size;
+    /**
+     * Byte positions of the offset table, weight column, order column and max tree.
+     */
+    private final int offsets;
+    private final int weights;
+    private final int order;
+    private final int tree;
+
+    /**
+     * Constructs an instance querying the given index file contents.
+     *
+     * @param buffer the contents of an index file.
+     * @param path   the path of the index file, for error messages.
+     * @throws IOException if the contents are not a valid index file.
+     */
+    private MappedAutocomplete(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an autocomplete index: " + path);
+        } else if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported autocomplete index version " + buffer.getInt(4) + ": " + path);
+        }
+        this.buffer = buffer;
+        this.size = buffer.getInt(8);
+        long blob = HEADER + 4L * (size + 1) + 8L * size + 4L * size + 8L * size;
+        if (size < 0 || blob + 2L * buffer.getInt(12) != buffer.capacity()) {
+            throw new IOException("Truncated autocomplete index: " + path);
+        }
+        this.offsets = HEADER;
+        this.weights = offsets + 4 * (size + 1);
+        this.order = weights + 8 * size;
+        this.tree = order + 4 * size;
+        this.chars = buffer.duplicate().position((int) blob).slice().asCharBuffer();
+    }
+
+    /**
+     * Opens the index file at the given path by mapping it into memory.
+     *
+     * @param path the path of an index file.
+     * @return an instance querying the index file.
+     * @throws IOException if an I/O error occurs or the file is not a valid index file.
+     */
+    public static MappedAutocomplete open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping remains valid after the channel is closed.
+            return new MappedAutocomplete(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path);
+        }
+    }
+
+    /**
+     * Writes an index file containing the given terms and weights to the given path. Adding a term more than once
+     * keeps its last weight and its first position in the order.
+     *
+     * @param path   the path of the index file to write.
+     * @param terms  collection containing elements to be added.
+     * @param weight function returning the weight of each term, where larger weights are better matches.
+     * @throws IOException              if an I/O error occurs.
+     * @throws IllegalArgumentException if the index file would be 2 GB or larger.
+     */
+    public static void write(Path path, Collection<? extends CharSequence> terms,
+                             ToDoubleFunction<? super CharSequence> weight) throws IOException {
+        Map<String, Double> weightOf = new LinkedHashMap<>();
+        for (CharSequence term : terms) {
+            String key = term.toString();
+            weightOf.put(key, weight.applyAsDouble(key));
+        }
+        Map<String, Integer> orderOf = new HashMap<>();
+        for (String term : weightOf.keySet()) {
+            orderOf.put(term, orderOf.size());
+        }
+        String[] sorted = weightOf.keySet().toArray(new String[0]);
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        long length = 0;
+        for (String term : sorted) {
+            length += term.length();
+        }
+        if (HEADER + 24L * n + 4 + 2 * length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Index of " + n + " terms is too large: " + path);
+        }
+        double[] weights = new double[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            weights[i] = weightOf.get(sorted[i]);
+            order[i] = orderOf.get(sorted[i]);
+        }
+        // Leaves of the max tree at n to 2n - 1 are the terms, and each parent has the better of its two children.
+        int[] tree = new int[2 * n];
+        for (int i = 0; i < n; i += 1) {
+            tree[n + i] = i;
+        }
+        for (int i = n - 1; i >= 1; i -= 1) {
+            tree[i] = better(weights, order, tree[2 * i], tree[2 * i + 1]);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt((int) length);
+            int offset = 0;
+            for (String term : sorted) {
+                out.writeInt(offset);
+                offset += term.length();
+            }
+            out.writeInt(offset);
+            for (double w : weights) {
+                out.writeDouble(w);
+            }
+            for (int o : order) {
+                out.writeInt(o);
+            }
+            for (int node : tree) {
+                out.writeInt(node);
+            }
+            for (String term : sorted) {
+                out.writeChars(term);
+            }
+        }
+    }
+
+    /**
+     * Unsupported, since index files are read-only.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        throw new UnsupportedOperationException("Index files are read-only");
+    }
+
+    /**
+     * Unsupported, since index files are read-only. Use {@link #write(Path, Collection, ToDoubleFunction)} instead.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms, ToDoubleFunction<? super CharSequence> weight) {
+        throw new UnsupportedOperationException("Index files are read-only");
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        return allMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Collections.emptyIterator();
+        }
+        int start = start(prefix);
+        int end = end(prefix, start);
+        return new Iterator<>() {
+            private int i = start;
+
+            @Override
+            public boolean hasNext() {
+                return i < end;
+            }
+
+            @Override
+            public CharSequence next() {
+                if (i >= end) {
+                    throw new NoSuchElementException();
+                }
+                i += 1;
+                return term(i - 1);
+            }
+        };
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
+        }
+        int start = start(prefix);
+        return end(prefix, start) - start;
+    }
+
+    @Override
+    public List<CharSequence> topMatches(CharSequence prefix, int k) {
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0 || k <= 0) {
+            return result;
+        }
+        // Each range of matches is queued by its best term. Taking the best range and splitting it around its best
+        // term yields the terms in descending order of weight.
+        PriorityQueue<int[]> ranges = new PriorityQueue<>(
+                (a, b) -> a[2] == b[2] ? 0 : better(a[2], b[2]) == a[2] ? -1 : 1
+        );
+        int start = start(prefix);
+        int end = end(prefix, start);
+        if (start < end) {
+            ranges.add(new int[]{start, end, best(start, end)});
+        }
+        while (!ranges.isEmpty() && result.size() < k) {
+            int[] range = ranges.remove();
+            result.add(term(range[2]));
+            if (range[0] < range[2]) {
+                ranges.add(new int[]{range[0], range[2], best(range[0], range[2])});
+            }
+            if (range[2] + 1 < range[1]) {
+                ranges.add(new int[]{range[2] + 1, range[1], best(range[2] + 1, range[1])});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of terms in the index.
+     *
+     * @return the number of terms in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the term at the given index in sorted order.
+     */
+    private String term(int i) {
+        int begin = buffer.getInt(offsets + 4 * i);
+        int end = buffer.getInt(offsets + 4 * (i + 1));
+        return chars.subSequence(begin, end).toString();
+    }
+
+    /**
+     * Returns the index of the first term that is greater than or equal to the prefix, which is the first match if
+     * there are any matches.
+     */
+    private int start(CharSequence prefix) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index after the last term that matches the prefix, given the index of the first possible match.
+     */
+    private int end(CharSequence prefix, int start) {
+        int low = start;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, prefix) == 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the term at the given index to the prefix, returning 0 if the term starts with the prefix.
+     */
+    private int compare(int i, CharSequence prefix) {
+        int begin = buffer.getInt(offsets + 4 * i);
+        int length = buffer.getInt(offsets + 4 * (i + 1)) - begin;
+        for (int j = 0; j < prefix.length(); j += 1) {
+            if (j == length) {
+                return -1;
+            }
+            int cmp = Character.compare(chars.get(begin + j), prefix.charAt(j));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the index of the best term between start (inclusive) and end (exclusive) using the max tree.
+     */
+    private int best(int start, int end) {
+        int result = start;
+        for (int low = start + size, high = end + size; low < high; low >>>= 1, high >>>= 1) {
+            if ((low & 1) == 1) {
+                result = better(result, buffer.getInt(tree + 4 * low));
+                low += 1;
+            }
+            if ((high & 1) == 1) {
+                high -= 1;
+                result = better(result, buffer.getInt(tree + 4 * high));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whichever of the two terms has the higher weight, breaking ties by the order they were first added.
+     */
+    private int better(int i, int j) {
+        double a = buffer.getDouble(weights + 8 * i);
+        double b = buffer.getDouble(weights + 8 * j);
+        if (a != b) {
+            return Double.compare(a, b) > 0 ? i : j;
+        }
+        return buffer.getInt(order + 4 * i) <= buffer.getInt(order + 4 * j) ? i : j;
+    }
+
+    /**
+     * Returns whichever of the two terms has the higher weight in the given columns, breaking ties by order.
+     */
+    private static int better(double[] weights, int[] order, int i, int j) {
+        if (weights[i] != weights[j]) {
+            return Double.compare(weights[i], weights[j]) > 0 ? i : j;
+        }
+        return order[i] <= order[j] ? i : j;
+    }
+}
@@ -0,0 +1,186 @@
+package autocomplete;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * {@link WeightedAutocomplete} that matches prefixes ignoring case, diacritics and punctuation. Each term is folded
+ * into a normalized key once when it is added, and only the keys are stored in the underlying index, so a query only
+ * folds its prefix and the index compares plain characters. Matching keys are mapped back to the original terms.
+ * <p>
+ * Folding lowercases letters, strips diacritics, removes punctuation, treats dashes and slashes as spaces, and
+ * collapses runs of spaces, so "St. Mark's Café" and "st marks cafe" have the same key.
+ *
+ * @param <A> the type of the underlying index of keys.
+ * @see WeightedAutocomplete
+ */
+public class NormalizedAutocomplete<A extends WeightedAutocomplete> implements WeightedAutocomplete {
+    /**
+     * The underlying index of normalized keys.
+     */
+    private final A index;
+    /**
+     * {@link Map} of each key to its original terms in descending order of weight.
+     */
+    private final Map<CharSequence, List<CharSequence>> terms;
+    /**
+     * {@link Map} of each original term to its weight.
+     */
+    private final Map<CharSequence, Double> weights;
+    /**
+     * {@link Map} of each original term to the order in which it was first added.
+     */
+    private final Map<CharSequence, Integer> order;
+
+    /**
+     * Constructs an empty instance storing its keys in the given empty index.
+     *
+     * @param index the underlying index of normalized keys.
+     */
+    public NormalizedAutocomplete(A index) {
+        this.index = index;
+        this.terms = new HashMap<>();
+        this.weights = new HashMap<>();
+        this.order = new HashMap<>();
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        addAll(terms, term -> 0);
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms, ToDoubleFunction<? super CharSequence> weight) {
+        Set<CharSequence> changed = new LinkedHashSet<>();
+        for (CharSequence term : terms) {
+            String key = fold(term).strip();
+            if (key.isEmpty()) {
+                continue;
+            }
+            String display = term.toString();
+            if (order.putIfAbsent(display, order.size()) == null) {
+                this.terms.computeIfAbsent(key, k -> new ArrayList<>()).add(display);
+            }
+            weights.put(display, weight.applyAsDouble(display));
+            changed.add(key);
+        }
+        for (CharSequence key : changed) {
+            this.terms.get(key).sort(this::compare);
+        }
+        // Each key is as good as its best term.
+        index.addAll(changed, key -> weights.get(this.terms.get(key).get(0)));
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        return allMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
+        return index.stream(fold(prefix))
+                .flatMap(key -> terms.get(key.toString()).stream())
+                .iterator();
+    }
+
+    @Override
+    public List<CharSequence> topMatches(CharSequence prefix, int k) {
+        return topMatches(prefix, k, (index, key) -> index.topMatches(key, k));
+    }
+
+    /**
+     * Returns up to k original terms in descending order of weight for the top keys returned by the given query on the
+     * folded prefix, such as a query continuing from the previous prefix typed by the same user.
+     *
+     * @param prefix search query.
+     * @param k      maximum number of terms to return.
+     * @param query  function returning the top k matching keys from the underlying index and the folded prefix.
+     * @return up to k matching terms in descending order of weight.
+     */
+    public List<CharSequence> topMatches(CharSequence prefix, int k, BiFunction<? super A, CharSequence,
+            ? extends List<CharSequence>> query) {
+        // Every term in the top k has a key in the top k, since each key is ranked by its best term.
+        List<CharSequence> result = new ArrayList<>();
+        for (CharSequence key : query.apply(index, fold(prefix))) {
+            result.addAll(terms.get(key.toString()));
+        }
+        result.sort(this::compare);
+        return new ArrayList<>(result.subList(0, Math.min(k, result.size())));
+    }
+
+    /**
+     * Returns up to k original terms for the keys returned by the given query on the folded prefix. Keys are expanded
+     * in the order returned by the query, each into its terms in descending order of weight.
+     *
+     * @param prefix search query.
+     * @param k      maximum number of terms to return.
+     * @param query  function returning matching keys from the underlying index and the folded prefix.
+     * @return up to k original terms for the matching keys.
+     */
+    public List<CharSequence> search(CharSequence prefix, int k, BiFunction<? super A, CharSequence,
+            ? extends List<CharSequence>> query) {
+        List<CharSequence> result = new ArrayList<>();
+        for (CharSequence key : query.apply(index, fold(prefix))) {
+            for (CharSequence term : terms.get(key.toString())) {
+                if (result.size() == k) {
+                    return result;
+                }
+                result.add(term);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the normalized key for the given text: lowercase letters and digits without diacritics, with any other
+     * punctuation removed and words separated by single spaces. A trailing space is kept so that a query ending in a
+     * space only matches whole words.
+     *
+     * @param text the text to fold, or null.
+     * @return the normalized key for the given text.
+     */
+    public static String fold(CharSequence text) {
+        if (text == null) {
+            return "";
+        }
+        for (int i = 0; i < text.length(); i += 1) {
+            if (text.charAt(i) >= 0x80) {
+                // Decompose accented characters into base characters and separate combining marks.
+                text = Normalizer.normalize(text, Normalizer.Form.NFD);
+                break;
+            }
+        }
+        StringBuilder result = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i += 1) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && result.length() > 0) {
+                    result.append(' ');
+                }
+                space = false;
+                result.append(Character.toLowerCase(c));
+            } else if (Character.isWhitespace(c) || c == '/'
+                    || Character.getType(c) == Character.DASH_PUNCTUATION) {
+                space = true;
+            }
+        }
+        if (space && result.length() > 0) {
+            result.append(' ');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Compares two original terms so that higher weights come first, breaking ties by insertion order.
+     */
+    private int compare(CharSequence a, CharSequence b) {
+        int cmp = Double.compare(weights.get(b), weights.get(a));
+        if (cmp == 0) {
+            return Integer.compare(order.get(a), order.get(b));
+        }
+        return cmp;
+    }
+}
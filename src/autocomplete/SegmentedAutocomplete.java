@@ -0,0 +1,251 @@
+package autocomplete;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Log-structured implementation of the {@link Autocomplete} interface for terms added in many small batches. Each
+ * batch is sorted on its own into an immutable segment, so adding terms never re-sorts the terms already added.
+ * Queries binary search every segment and merge their matches in sorted order.
+ * <p>
+ * To keep the number of segments logarithmic, a background thread merges {@value #FANOUT} segments of similar size
+ * into one whenever there are that many (tiered compaction), so each term is merged O(log n) times in total. The
+ * list of segments is replaced rather than modified, so queries read a consistent snapshot without locking.
+ *
+ * @see Autocomplete
+ * @see BinarySearchAutocomplete
+ */
+public class SegmentedAutocomplete implements Autocomplete {
+    /**
+     * Number of segments of similar size that are merged together.
+     */
+    private static final int FANOUT = 4;
+    /**
+     * Single background thread shared by all instances for merging segments.
+     */
+    private static final ExecutorService COMPACTION = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autocomplete-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Immutable list of segments, each containing terms that are in no other segment.
+     */
+    private volatile List<Segment> segments;
+    /**
+     * Lock held while replacing the list of segments.
+     */
+    private final Object lock;
+    /**
+     * Whether a compaction is waiting to run. Guarded by {@link #lock}.
+     */
+    private boolean scheduled;
+
+    /**
+     * Constructs an empty instance.
+     */
+    public SegmentedAutocomplete() {
+        this.segments = List.of();
+        this.lock = new Object();
+        this.scheduled = false;
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        CharSequence[] batch = terms.toArray(new CharSequence[0]);
+        Arrays.parallelSort(batch, CharSequence::compare);
+        synchronized (lock) {
+            // Keep only the first copy of each term that is not already in a segment, so segments stay disjoint.
+            int size = 0;
+            for (CharSequence term : batch) {
+                if ((size == 0 || CharSequence.compare(batch[size - 1], term) != 0) && !contains(term)) {
+                    batch[size] = term;
+                    size += 1;
+                }
+            }
+            if (size == 0) {
+                return;
+            }
+            TermArena added = new TermArena(size, 0);
+            for (int i = 0; i < size; i += 1) {
+                added.add(batch[i]);
+            }
+            List<Segment> next = new ArrayList<>(segments);
+            next.add(new Segment(added));
+            segments = Collections.unmodifiableList(next);
+            if (!scheduled) {
+                scheduled = true;
+                COMPACTION.execute(() -> {
+                    synchronized (lock) {
+                        scheduled = false;
+                    }
+                    compact();
+                });
+            }
+        }
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        return allMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Collections.emptyIterator();
+        }
+        List<Segment> snapshot = segments;
+        // Each cursor is a segment with the index of its next match and the index after its last match.
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(
+                (a, b) -> snapshot.get(a[0]).terms.compare(a[1], snapshot.get(b[0]).terms, b[1])
+        );
+        for (int i = 0; i < snapshot.size(); i += 1) {
+            int start = snapshot.get(i).terms.start(prefix);
+            int end = snapshot.get(i).terms.end(prefix, start);
+            if (start < end) {
+                cursors.add(new int[]{i, start, end});
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !cursors.isEmpty();
+            }
+
+            @Override
+            public CharSequence next() {
+                if (cursors.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                int[] cursor = cursors.remove();
+                CharSequence result = snapshot.get(cursor[0]).terms.get(cursor[1]);
+                cursor[1] += 1;
+                if (cursor[1] < cursor[2]) {
+                    cursors.add(cursor);
+                }
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (Segment segment : segments) {
+            int start = segment.terms.start(prefix);
+            count += segment.terms.end(prefix, start) - start;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of segments, which is at most {@value #FANOUT} segments per power of {@value #FANOUT} terms
+     * once compaction has caught up.
+     *
+     * @return the number of segments.
+     */
+    public int segments() {
+        return segments.size();
+    }
+
+    /**
+     * Merges groups of {@value #FANOUT} segments of similar size until there are no such groups. Runs in the
+     * background after terms are added, but may also be called directly to compact immediately.
+     */
+    public synchronized void compact() {
+        for (List<Segment> group = group(segments); group != null; group = group(segments)) {
+            Segment merged = merge(group);
+            synchronized (lock) {
+                List<Segment> next = new ArrayList<>();
+                next.add(merged);
+                for (Segment segment : segments) {
+                    if (!group.contains(segment)) {
+                        next.add(segment);
+                    }
+                }
+                segments = Collections.unmodifiableList(next);
+            }
+        }
+    }
+
+    /**
+     * Returns true if and only if some segment contains the term.
+     */
+    private boolean contains(CharSequence term) {
+        for (Segment segment : segments) {
+            int index = segment.terms.start(term);
+            if (index < segment.terms.size() && segment.terms.compare(index, term) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@value #FANOUT} segments in the same tier, where a segment's tier is the floor of the base-{@value
+     * #FANOUT} logarithm of its size, or null if no tier has that many segments.
+     */
+    private static List<Segment> group(List<Segment> segments) {
+        Map<Integer, List<Segment>> tiers = new TreeMap<>();
+        for (Segment segment : segments) {
+            int tier = 0;
+            for (int size = segment.terms.size(); size >= FANOUT; size /= FANOUT) {
+                tier += 1;
+            }
+            List<Segment> group = tiers.computeIfAbsent(tier, t -> new ArrayList<>());
+            group.add(segment);
+            if (group.size() == FANOUT) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a segment containing the terms of all the given disjoint segments.
+     */
+    private static Segment merge(List<Segment> group) {
+        int total = 0;
+        long characters = 0;
+        for (Segment segment : group) {
+            total += segment.terms.size();
+            characters += segment.terms.characters();
+        }
+        TermArena merged = new TermArena(total, (int) Math.min(Integer.MAX_VALUE - 8, characters));
+        int[] indices = new int[group.size()];
+        for (int n = 0; n < total; n += 1) {
+            int best = -1;
+            for (int i = 0; i < group.size(); i += 1) {
+                TermArena terms = group.get(i).terms;
+                if (indices[i] < terms.size() && (best < 0
+                        || terms.compare(indices[i], group.get(best).terms, indices[best]) < 0)) {
+                    best = i;
+                }
+            }
+            merged.add(group.get(best).terms, indices[best]);
+            indices[best] += 1;
+        }
+        return new Segment(merged);
+    }
+
+    /**
+     * An immutable {@link TermArena} of distinct terms in sorted order.
+     */
+    private static class Segment {
+        final TermArena terms;
+
+        /**
+         * Constructs a segment of the given terms.
+         *
+         * @param terms distinct terms in sorted order.
+         */
+        Segment(TermArena terms) {
+            this.terms = terms;
+        }
+    }
+}
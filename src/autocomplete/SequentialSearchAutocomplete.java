@@ -1,8 +1,7 @@
 package autocomplete;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Sequential search implementation of the {@link Autocomplete} interface.
@@ -11,40 +10,39 @@ import java.util.List;
  */
 public class SequentialSearchAutocomplete implements Autocomplete {
     /**
-     * {@link List} of added autocompletion terms.
+     * {@link TermArena} of added autocompletion terms.
      */
-    private final List<CharSequence> terms;
-
+    private final TermArena terms;
 
     /**
      * Constructs an empty instance.
      */
     public SequentialSearchAutocomplete() {
-        this.terms = new ArrayList<>();
+        this.terms = new TermArena();
     }
 
     @Override
     public void addAll(Collection<? extends CharSequence> terms) {
-        // TODO: Replace with your code
-        this.terms.addAll(terms);
-        //throw new UnsupportedOperationException("Not implemented yet");
+        for (CharSequence term : terms) {
+            this.terms.add(term);
+        }
     }
 
     @Override
     public List<CharSequence> allMatches(CharSequence prefix) {
-        // TODO: Replace with your code
-        List<CharSequence> result = new ArrayList<>();
+        return allMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
         if (prefix == null || prefix.length() == 0) {
-            return result;
-        }
-        for (CharSequence term : terms) {
-            //   boolean flag = false;
-            if (Autocomplete.isPrefixOf(prefix, term)) {
-                result.add(term);
-                //      flag = true;
-            }
+            return Collections.emptyIterator();
         }
-        return result;
-        // throw new UnsupportedOperationException("Not implemented yet");
+        // Only the terms at the moment of the call are searched.
+        int size = terms.size();
+        return IntStream.range(0, size)
+                .filter(i -> terms.startsWith(i, prefix))
+                .<CharSequence>mapToObj(terms::get)
+                .iterator();
     }
 }
@@ -0,0 +1,99 @@
+package autocomplete;
+
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Thread-safe {@link WeightedAutocomplete} that publishes immutable snapshots of an underlying index. Each query reads
+ * the current snapshot from a volatile field and runs against it without locking, so any number of threads can query
+ * while terms are being added. Adding terms builds a new index from scratch off to the side, containing every term
+ * added so far, and then replaces the snapshot in one write, so a query sees either all or none of a batch.
+ * <p>
+ * Every {@link #addAll(Collection)} rebuilds the whole index, so terms should be added in large batches. Only one
+ * batch is added at a time, and queries that started before it finishes continue to use the previous snapshot.
+ * <p>
+ * The underlying index must finish building its search structures in its own {@code addAll}, as the indexes in this
+ * package do, so that a published snapshot is only ever read. An index that built them lazily on its first query
+ * would be written by the concurrent readers of a new snapshot.
+ *
+ * @param <A> the type of the underlying index.
+ * @see WeightedAutocomplete
+ */
+public class SnapshotAutocomplete<A extends WeightedAutocomplete> implements WeightedAutocomplete {
+    /**
+     * Function returning a new empty index.
+     */
+    private final Supplier<? extends A> factory;
+    /**
+     * {@link Map} of each term added so far to its weight, in the order each term was first added. Guarded by this.
+     */
+    private final Map<CharSequence, Double> weights;
+    /**
+     * The current index, which is completely built before it is published and never modified afterwards.
+     */
+    private volatile A snapshot;
+
+    /**
+     * Constructs an empty instance that builds each snapshot in a new index from the given factory.
+     *
+     * @param factory function returning a new empty index.
+     */
+    public SnapshotAutocomplete(Supplier<? extends A> factory) {
+        this.factory = factory;
+        this.weights = new LinkedHashMap<>();
+        this.snapshot = factory.get();
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        addAll(terms, term -> 0);
+    }
+
+    @Override
+    public synchronized void addAll(Collection<? extends CharSequence> terms,
+                                    ToDoubleFunction<? super CharSequence> weight) {
+        for (CharSequence term : terms) {
+            String key = term.toString();
+            weights.put(key, weight.applyAsDouble(key));
+        }
+        A next = factory.get();
+        next.addAll(weights.keySet(), weights::get);
+        snapshot = next;
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        return snapshot.allMatches(prefix);
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix, int limit) {
+        return snapshot.allMatches(prefix, limit);
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        return snapshot.countMatches(prefix);
+    }
+
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
+        return snapshot.matches(prefix);
+    }
+
+    @Override
+    public List<CharSequence> topMatches(CharSequence prefix, int k) {
+        return snapshot.topMatches(prefix, k);
+    }
+
+    /**
+     * Returns the current index, so that several queries can run against the same version of the terms. The index
+     * must not be modified.
+     *
+     * @return the current index.
+     */
+    public A snapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,229 @@
+package autocomplete;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of terms that packs the characters of every term into one array, with the start of each term in an
+ * offsets array. Terms are compared and prefix-matched directly in the array, so searching allocates nothing, and a
+ * term is only copied into a {@link String} when it is returned.
+ * <p>
+ * The binary search methods {@link #start(CharSequence)} and {@link #end(CharSequence, int)} require the terms to have
+ * been added in sorted order.
+ */
+class TermArena {
+    /**
+     * Largest array size that the JVM reliably allocates.
+     */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    /**
+     * Characters of every term, one after another.
+     */
+    private char[] chars;
+    /**
+     * Start of each term in {@link #chars}, followed by the end of the last term.
+     */
+    private int[] offsets;
+    /**
+     * Number of terms.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty arena.
+     */
+    TermArena() {
+        this(16, 16);
+    }
+
+    /**
+     * Constructs an empty arena with room for the given number of terms and characters.
+     *
+     * @param terms number of terms.
+     * @param chars total number of characters in the terms.
+     */
+    TermArena(int terms, int chars) {
+        this.chars = new char[Math.max(chars, 16)];
+        this.offsets = new int[Math.max(terms, 16) + 1];
+        this.size = 0;
+    }
+
+    /**
+     * Appends the term.
+     *
+     * @param term the term to append.
+     */
+    void add(CharSequence term) {
+        int start = reserve(term.length());
+        for (int i = 0; i < term.length(); i += 1) {
+            chars[start + i] = term.charAt(i);
+        }
+    }
+
+    /**
+     * Appends the term at the given index of the other arena, copying its characters without creating a string.
+     *
+     * @param other the other arena.
+     * @param i     index of the term in the other arena.
+     */
+    void add(TermArena other, int i) {
+        int length = other.length(i);
+        int start = reserve(length);
+        System.arraycopy(other.chars, other.offsets[i], chars, start, length);
+    }
+
+    /**
+     * Returns the number of terms.
+     *
+     * @return the number of terms.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total number of characters in the terms.
+     *
+     * @return the total number of characters in the terms.
+     */
+    int characters() {
+        return offsets[size];
+    }
+
+    /**
+     * Returns the length of the term at the given index.
+     *
+     * @param i index of the term.
+     * @return the length of the term.
+     */
+    int length(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /**
+     * Returns a copy of the term at the given index.
+     *
+     * @param i index of the term.
+     * @return the term as a string.
+     */
+    String get(int i) {
+        return new String(chars, offsets[i], length(i));
+    }
+
+    /**
+     * Compares the term at the given index with the other term in lexicographic order.
+     *
+     * @param i     index of the term.
+     * @param other the other term.
+     * @return a negative number, zero, or a positive number if the term is less than, equal to, or greater than the
+     * other term.
+     */
+    int compare(int i, CharSequence other) {
+        int start = offsets[i];
+        int length = length(i);
+        int n = Math.min(length, other.length());
+        for (int j = 0; j < n; j += 1) {
+            char c = chars[start + j];
+            char d = other.charAt(j);
+            if (c != d) {
+                return c - d;
+            }
+        }
+        return length - other.length();
+    }
+
+    /**
+     * Compares the term at the given index with the term at the other index of the other arena in lexicographic
+     * order.
+     *
+     * @param i     index of the term.
+     * @param other the other arena.
+     * @param j     index of the term in the other arena.
+     * @return a negative number, zero, or a positive number if the term is less than, equal to, or greater than the
+     * other term.
+     */
+    int compare(int i, TermArena other, int j) {
+        return Arrays.compare(chars, offsets[i], offsets[i + 1], other.chars, other.offsets[j], other.offsets[j + 1]);
+    }
+
+    /**
+     * Returns true if and only if the term at the given index starts with the prefix.
+     *
+     * @param i      index of the term.
+     * @param prefix prefix template.
+     * @return true if and only if the term starts with the prefix.
+     */
+    boolean startsWith(int i, CharSequence prefix) {
+        int start = offsets[i];
+        if (prefix.length() > length(i)) {
+            return false;
+        }
+        for (int j = 0; j < prefix.length(); j += 1) {
+            if (chars[start + j] != prefix.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the first term that is greater than or equal to the prefix, which is the first match if
+     * there are any matches. The terms must be in sorted order.
+     *
+     * @param prefix search query.
+     * @return the index of the first possible match.
+     */
+    int start(CharSequence prefix) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index after the last term that matches the prefix, given the index of the first possible match. The
+     * terms must be in sorted order, so that matching terms are consecutive.
+     *
+     * @param prefix search query.
+     * @param start  the index of the first possible match.
+     * @return the index after the last match.
+     */
+    int end(CharSequence prefix, int start) {
+        int low = start;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startsWith(mid, prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds a term of the given length, growing the arrays if necessary, and returns the index of its first character.
+     */
+    private int reserve(int length) {
+        int start = offsets[size];
+        if ((long) start + length > MAX_CAPACITY) {
+            throw new IllegalStateException("Too many characters for one arena: " + ((long) start + length));
+        } else if (start + length > chars.length) {
+            int capacity = (int) Math.min(MAX_CAPACITY, Math.max(2L * chars.length, start + length));
+            chars = Arrays.copyOf(chars, capacity);
+        }
+        if (size + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+        }
+        size += 1;
+        offsets[size] = start + length;
+        return start;
+    }
+}
@@ -1,9 +1,6 @@
 package autocomplete;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Locale;
+import java.util.*;
 
 /**
  * Ternary search tree (TST) implementation of the {@link Autocomplete} interface.
@@ -38,10 +35,23 @@ public class TernarySearchTreeAutocomplete implements Autocomplete {
     }
     @Override
     public List<CharSequence> allMatches(CharSequence prefix) {
-        // TODO: Replace with your code
+        return allMatches(prefix, Integer.MAX_VALUE);
+    }
 
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return Collections.emptyIterator();
+        }
         return tree.startsWith(prefix);
+    }
 
+    @Override
+    public int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
+        }
+        return tree.count(prefix);
     }
 
     /**
@@ -50,6 +60,7 @@ public class TernarySearchTreeAutocomplete implements Autocomplete {
     private static class Node {
         private char data;
         private boolean isTerm;
+        private int count;
         private Node left;
         private Node mid;
         private Node right;
@@ -57,6 +68,7 @@ public class TernarySearchTreeAutocomplete implements Autocomplete {
         public Node(char data) {
             this.data = data;
             this.isTerm = false;
+            this.count = 0;
             this.left = null;
             this.mid = null;
             this.right = null;
@@ -104,7 +116,9 @@ public class TernarySearchTreeAutocomplete implements Autocomplete {
         //insert
         public void insert(final String word){
             if(word == null || word.length()==0) return;
-            insert(root, word.toUpperCase().toCharArray(), 0);
+            Node node = find(word);
+            if (node != null && node.isTerm()) return;
+            insert(root, word.toCharArray(), 0);
         }
 
         private Node insert(Node node, final char[] word, int idx){
@@ -113,6 +127,8 @@ public class TernarySearchTreeAutocomplete implements Autocomplete {
             if(node == null){
                 node = new Node(currChar);
             }
+            // Only called for new terms, so every node on the path gains a term in its subtree.
+            node.count += 1;
 
             if(currChar < node.getData()){
                 node.left = insert(node.left, word, idx);
@@ -126,39 +142,128 @@ public class TernarySearchTreeAutocomplete implements Autocomplete {
             }
             return node;
         }
-        public List<CharSequence> startsWith(final CharSequence prefix){
-            List<CharSequence> res = new ArrayList<>();
-            Node subTST = startsWith(this.root, prefix.toString(), 0);
-            if(subTST == null) return res;
-            if(subTST.isTerm()) res.add(prefix);
-            collect(subTST.mid, new StringBuilder(prefix), res);
-            return res;
+        /**
+         * Returns an iterator over the terms starting with the non-empty prefix in lexicographic order.
+         */
+        public Iterator<CharSequence> startsWith(final CharSequence prefix){
+            Node node = find(prefix);
+            if (node == null) {
+                return Collections.emptyIterator();
+            }
+            return new Matches(node, prefix);
         }
 
-        private Node startsWith(Node node, String prefix, int idx){
-            if(node == null) return null;
-            char currChar = prefix.charAt(idx);
-            if(currChar < node.getData()){
-                return startsWith(node.left, prefix, idx);
+        /**
+         * Returns the number of terms starting with the non-empty prefix.
+         */
+        public int count(final CharSequence prefix){
+            Node node = find(prefix);
+            if (node == null) {
+                return 0;
             }
-            else if(currChar > node.getData()){
-                return startsWith(node.right, prefix, idx);
+            return (node.isTerm() ? 1 : 0) + (node.mid == null ? 0 : node.mid.count);
+        }
+
+        /**
+         * Returns the node for the last character of the non-empty prefix, or null if no term starts with the prefix.
+         */
+        private Node find(final CharSequence prefix){
+            Node node = root;
+            int idx = 0;
+            while (node != null) {
+                char currChar = prefix.charAt(idx);
+                if (currChar < node.getData()) {
+                    node = node.left;
+                } else if (currChar > node.getData()) {
+                    node = node.right;
+                } else if (idx < prefix.length() - 1) {
+                    node = node.mid;
+                    idx += 1;
+                } else {
+                    return node;
+                }
             }
-            else if (idx < prefix.length() - 1){
-                return startsWith(node.mid, prefix, idx + 1);
+            return null;
+        }
+    }
+
+    /**
+     * Iterator over the terms in the subtree below a prefix node in lexicographic order. Only walks as far as needed to
+     * find the next term.
+     */
+    private static class Matches implements Iterator<CharSequence> {
+        /**
+         * Nodes still to be expanded or visited, each with the length of the path before its character.
+         */
+        private final Deque<Node> nodes = new ArrayDeque<>();
+        private final Deque<Integer> depths = new ArrayDeque<>();
+        private final Deque<Boolean> visits = new ArrayDeque<>();
+        private final StringBuilder path;
+        private CharSequence next;
+
+        /**
+         * Constructs an iterator over the prefix, if it is a term, followed by the terms below the prefix node.
+         *
+         * @param node   the node for the last character of the prefix.
+         * @param prefix the prefix leading to the node.
+         */
+        Matches(Node node, CharSequence prefix) {
+            this.path = new StringBuilder(prefix);
+            this.next = node.isTerm() ? prefix.toString() : null;
+            push(node.mid, prefix.length(), false);
+            if (next == null) {
+                advance();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public CharSequence next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            CharSequence result = next;
+            next = null;
+            advance();
+            return result;
+        }
+
+        /**
+         * Walks the tree in order until the next term is found or every node has been visited.
+         */
+        private void advance() {
+            while (next == null && !nodes.isEmpty()) {
+                Node node = nodes.pop();
+                int depth = depths.pop();
+                if (visits.pop()) {
+                    path.setLength(depth);
+                    path.append(node.getData());
+                    push(node.mid, depth + 1, false);
+                    if (node.isTerm()) {
+                        next = path.toString();
+                    }
+                } else {
+                    // Push in reverse order: right subtree, this node, then left subtree.
+                    push(node.right, depth, false);
+                    push(node, depth, true);
+                    push(node.left, depth, false);
+                }
             }
-            else return node;
         }
 
-        private void collect(Node node, StringBuilder prefix, List<CharSequence> result){
-            if(node==null) return;
-            collect(node.left, prefix, result);
-            if(node.isTerm()) {
-                result.add(prefix.toString() + node.getData());
+        /**
+         * Pushes the node, if it exists, to be expanded or visited.
+         */
+        private void push(Node node, int depth, boolean visit) {
+            if (node != null) {
+                nodes.push(node);
+                depths.push(depth);
+                visits.push(visit);
             }
-            collect(node.mid, prefix.append(node.getData()), result);
-            prefix.deleteCharAt(prefix.length()-1);
-            collect(node.right, prefix, result);
         }
     }
 }
@@ -0,0 +1,420 @@
+package autocomplete;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Inverted index implementation of the {@link WeightedAutocomplete} interface that matches the start of any word in a
+ * term rather than only the start of the whole term, so "Market" matches "Pike Place Market". A query with several
+ * words matches the terms that have a word starting with each query word, in any order.
+ * <p>
+ * Terms are numbered by rank in descending order of weight, and every distinct word (token) is stored in a sorted
+ * dictionary, so the tokens starting with a query word form one contiguous range found by binary search. Each token
+ * points to a posting list of the ranks of the terms containing it, stored in increasing order as variable-length
+ * encoded gaps. Because ranks follow weight, the best matches are simply the smallest ranks.
+ * <p>
+ * The dictionary and posting lists are rebuilt at the end of each call to
+ * {@link #addAll(Collection, ToDoubleFunction)} and published together as one immutable {@link Index}, so queries
+ * never write and always read a consistent index.
+ *
+ * @see WeightedAutocomplete
+ */
+public class TokenAutocomplete implements WeightedAutocomplete {
+    /**
+     * Size ratio of posting lists above which a query word is checked against the driving word's candidate terms
+     * rather than intersected, since decoding its posting lists would cost more than checking the few candidates.
+     */
+    private static final int CHECK_RATIO = 8;
+    /**
+     * Query words whose posting lists are larger than this fraction of all postings are common enough that a top-k
+     * query finds its matches after checking only a few candidate terms, so they are checked rather than intersected.
+     */
+    private static final int COMMON_FRACTION = 64;
+    /**
+     * {@link List} of added autocompletion terms indexed by term id.
+     */
+    private final List<CharSequence> terms;
+    /**
+     * {@link Map} of each term to its term id.
+     */
+    private final Map<String, Integer> ids;
+    /**
+     * Weight of each term indexed by term id.
+     */
+    private double[] weights;
+    /**
+     * The token dictionary and posting lists for every term added so far.
+     */
+    private volatile Index index;
+
+    /**
+     * Constructs an empty instance.
+     */
+    public TokenAutocomplete() {
+        this.terms = new ArrayList<>();
+        this.ids = new HashMap<>();
+        this.weights = new double[16];
+        this.index = new Index(new CharSequence[0], new String[0], new int[1], new byte[0]);
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        addAll(terms, term -> 0);
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms, ToDoubleFunction<? super CharSequence> weight) {
+        for (CharSequence term : terms) {
+            if (words(term).isEmpty()) {
+                continue;
+            }
+            Integer id = ids.get(term.toString());
+            if (id == null) {
+                id = this.terms.size();
+                ids.put(term.toString(), id);
+                this.terms.add(term);
+                if (id == weights.length) {
+                    weights = Arrays.copyOf(weights, 2 * weights.length);
+                }
+            }
+            weights[id] = weight.applyAsDouble(term);
+        }
+        index = build();
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        return topMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix, int limit) {
+        return topMatches(prefix, limit);
+    }
+
+    @Override
+    public List<CharSequence> topMatches(CharSequence prefix, int k) {
+        List<CharSequence> result = new ArrayList<>();
+        List<String> words = words(prefix);
+        if (words.isEmpty() || k <= 0) {
+            return result;
+        }
+        Index index = this.index;
+        String[] tokens = index.tokens;
+        int[] offsets = index.offsets;
+        CharSequence[] ranked = index.terms;
+        // Find the range of tokens starting with each word, driving the search with the smallest posting lists.
+        int[] lows = new int[words.size()];
+        int[] highs = new int[words.size()];
+        int driver = 0;
+        for (int i = 0; i < words.size(); i += 1) {
+            lows[i] = firstAtLeast(tokens, words.get(i));
+            highs[i] = firstAfterPrefix(tokens, words.get(i), lows[i]);
+            if (lows[i] == highs[i]) {
+                return result;
+            } else if (offsets[highs[i]] - offsets[lows[i]] < offsets[highs[driver]] - offsets[lows[driver]]) {
+                driver = i;
+            }
+        }
+        // Intersect by testing the driver's ranks against the union of the other words' posting lists, except for
+        // words with much longer posting lists, which are checked against the words of each candidate term instead.
+        List<BitSet> others = new ArrayList<>();
+        List<String> checked = new ArrayList<>();
+        int driverSize = offsets[highs[driver]] - offsets[lows[driver]];
+        for (int i = 0; i < words.size(); i += 1) {
+            int size = offsets[highs[i]] - offsets[lows[i]];
+            if (i == driver) {
+                continue;
+            } else if (k < ranked.length
+                    && (size > CHECK_RATIO * driverSize || size > index.postings.length / COMMON_FRACTION)) {
+                checked.add(words.get(i));
+            } else {
+                others.add(index.union(lows[i], highs[i]));
+            }
+        }
+        if (k >= ranked.length) {
+            BitSet matches = index.union(lows[driver], highs[driver]);
+            for (BitSet other : others) {
+                matches.and(other);
+            }
+            for (int rank = matches.nextSetBit(0); rank >= 0; rank = matches.nextSetBit(rank + 1)) {
+                result.add(ranked[rank]);
+            }
+            return result;
+        }
+        // Merge the driver's posting lists in increasing rank order until k matches are found.
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparingInt(cursor -> cursor.rank));
+        for (int token = lows[driver]; token < highs[driver]; token += 1) {
+            Cursor cursor = new Cursor(index.postings, offsets[token], offsets[token + 1]);
+            cursor.advance();
+            cursors.add(cursor);
+        }
+        int previous = -1;
+        while (!cursors.isEmpty() && result.size() < k) {
+            Cursor cursor = cursors.remove();
+            int rank = cursor.rank;
+            if (cursor.hasNext()) {
+                cursor.advance();
+                cursors.add(cursor);
+            }
+            CharSequence term = ranked[rank];
+            if (rank != previous && matchesAll(others, rank) && hasWordsStartingWith(term, checked)) {
+                result.add(term);
+            }
+            previous = rank;
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if and only if every given set contains the rank.
+     */
+    private static boolean matchesAll(List<BitSet> sets, int rank) {
+        for (BitSet set : sets) {
+            if (!set.get(rank)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if and only if the term has a word starting with each of the given words.
+     */
+    private static boolean hasWordsStartingWith(CharSequence term, List<String> words) {
+        if (words.isEmpty()) {
+            return true;
+        }
+        List<String> tokens = words(term);
+        for (String word : words) {
+            boolean found = false;
+            for (int i = 0; i < tokens.size() && !found; i += 1) {
+                found = tokens.get(i).startsWith(word);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the first token that is greater than or equal to the word.
+     */
+    private static int firstAtLeast(String[] tokens, String word) {
+        int low = 0;
+        int high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens[mid].compareTo(word) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first token at or after the given index that does not start with the word.
+     */
+    private static int firstAfterPrefix(String[] tokens, String word, int low) {
+        int high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens[mid].startsWith(word)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Builds the token dictionary and posting lists for every term added so far.
+     */
+    private Index build() {
+        Integer[] order = new Integer[terms.size()];
+        for (int i = 0; i < order.length; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int cmp = Double.compare(weights[b], weights[a]);
+            if (cmp == 0) {
+                return Integer.compare(a, b);
+            }
+            return cmp;
+        });
+        CharSequence[] ranked = new CharSequence[order.length];
+        Map<String, Ranks> index = new HashMap<>();
+        for (int rank = 0; rank < order.length; rank += 1) {
+            ranked[rank] = terms.get(order[rank]);
+            for (String token : words(ranked[rank])) {
+                index.computeIfAbsent(token, t -> new Ranks()).add(rank);
+            }
+        }
+        String[] tokens = index.keySet().toArray(new String[0]);
+        Arrays.sort(tokens);
+        int[] offsets = new int[tokens.length + 1];
+        byte[] encoded = new byte[16];
+        int size = 0;
+        for (int i = 0; i < tokens.length; i += 1) {
+            offsets[i] = size;
+            Ranks ranks = index.get(tokens[i]);
+            int previous = -1;
+            for (int j = 0; j < ranks.size; j += 1) {
+                if (encoded.length - size < 5) {
+                    encoded = Arrays.copyOf(encoded, 2 * encoded.length);
+                }
+                // Write the gap 7 bits at a time, setting the high bit on every byte but the last.
+                int gap = ranks.ranks[j] - previous;
+                while (gap >= 0x80) {
+                    encoded[size] = (byte) (gap | 0x80);
+                    size += 1;
+                    gap >>>= 7;
+                }
+                encoded[size] = (byte) gap;
+                size += 1;
+                previous = ranks.ranks[j];
+            }
+        }
+        offsets[tokens.length] = size;
+        return new Index(ranked, tokens, offsets, Arrays.copyOf(encoded, size));
+    }
+
+    /**
+     * Returns the whitespace-separated words in the given text.
+     */
+    private static List<String> words(CharSequence text) {
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i += 1) {
+            boolean space = i == text.length() || Character.isWhitespace(text.charAt(i));
+            if (space && start >= 0) {
+                result.add(text.subSequence(start, i).toString());
+                start = -1;
+            } else if (!space && start < 0) {
+                start = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Immutable token dictionary and posting lists, replaced as a unit whenever terms are added.
+     */
+    private static class Index {
+        /**
+         * Terms in order of rank.
+         */
+        final CharSequence[] terms;
+        /**
+         * Distinct tokens in sorted order.
+         */
+        final String[] tokens;
+        /**
+         * Start of each token's posting list in {@link #postings}, plus the end of the last posting list.
+         */
+        final int[] offsets;
+        /**
+         * Concatenated posting lists of variable-length encoded gaps between increasing ranks.
+         */
+        final byte[] postings;
+
+        Index(CharSequence[] terms, String[] tokens, int[] offsets, byte[] postings) {
+            this.terms = terms;
+            this.tokens = tokens;
+            this.offsets = offsets;
+            this.postings = postings;
+        }
+
+        /**
+         * Returns the set of ranks in the posting lists of the tokens in the range {@code [low, high)}.
+         */
+        BitSet union(int low, int high) {
+            BitSet result = new BitSet(terms.length);
+            for (int token = low; token < high; token += 1) {
+                Cursor cursor = new Cursor(postings, offsets[token], offsets[token + 1]);
+                while (cursor.hasNext()) {
+                    cursor.advance();
+                    result.set(cursor.rank);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Growable list of increasing ranks without duplicates.
+     */
+    private static class Ranks {
+        private int[] ranks = new int[2];
+        private int size = 0;
+
+        /**
+         * Adds the rank unless it is the same as the last rank added.
+         *
+         * @param rank a rank no smaller than any rank already added.
+         */
+        void add(int rank) {
+            if (size > 0 && ranks[size - 1] == rank) {
+                return;
+            } else if (size == ranks.length) {
+                ranks = Arrays.copyOf(ranks, 2 * size);
+            }
+            ranks[size] = rank;
+            size += 1;
+        }
+    }
+
+    /**
+     * Decoder for a posting list, positioned at the most recently decoded rank.
+     */
+    private static class Cursor {
+        private final byte[] postings;
+        private int position;
+        private final int end;
+        private int rank;
+
+        /**
+         * Constructs a cursor over the encoded bytes in the range {@code [position, end)} of the posting lists.
+         *
+         * @param postings the concatenated posting lists.
+         * @param position the start of the posting list.
+         * @param end      the end of the posting list.
+         */
+        Cursor(byte[] postings, int position, int end) {
+            this.postings = postings;
+            this.position = position;
+            this.end = end;
+            this.rank = -1;
+        }
+
+        /**
+         * Returns true if and only if there is another rank to decode.
+         */
+        boolean hasNext() {
+            return position < end;
+        }
+
+        /**
+         * Decodes the next gap and adds it to the current rank.
+         */
+        void advance() {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[position];
+                position += 1;
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            rank += gap;
+        }
+    }
+}
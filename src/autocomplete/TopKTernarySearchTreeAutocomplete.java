@@ -0,0 +1,486 @@
+package autocomplete;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Ternary search tree (TST) implementation of the {@link WeightedAutocomplete} interface. Each node caches the
+ * highest-weighted terms in its subtree, so {@link #topMatches(CharSequence, int)} only walks the prefix and reads a
+ * cached list instead of collecting and sorting every match. Queries for more terms than the cache capacity fall back
+ * to collecting every match.
+ * <p>
+ * The caches are recomputed at the end of each call to {@link #addAll(Collection, ToDoubleFunction)}, so queries only
+ * read the tree and may run concurrently once terms are no longer being added.
+ *
+ * @see WeightedAutocomplete
+ */
+public class TopKTernarySearchTreeAutocomplete implements WeightedAutocomplete {
+    /**
+     * Default number of best terms cached in each node.
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+    /**
+     * Shared empty cache for subtrees without any terms.
+     */
+    static final int[] NONE = new int[0];
+    /**
+     * Number of best terms cached in each node.
+     */
+    final int capacity;
+    /**
+     * {@link List} of added autocompletion terms indexed by term id.
+     */
+    final List<CharSequence> terms;
+    /**
+     * Weight of each term indexed by term id.
+     */
+    private double[] weights;
+    /**
+     * The overall root of the tree: the first character of the first autocompletion term added to this tree.
+     */
+    Node overallRoot;
+
+    /**
+     * Constructs an empty instance that answers top-k queries for k up to {@value #DEFAULT_CAPACITY} from its cache.
+     */
+    public TopKTernarySearchTreeAutocomplete() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty instance that answers top-k queries for k up to the given capacity from its cache.
+     *
+     * @param capacity number of best terms cached in each node.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public TopKTernarySearchTreeAutocomplete(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.terms = new ArrayList<>();
+        this.weights = new double[DEFAULT_CAPACITY];
+        this.overallRoot = null;
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms) {
+        addAll(terms, term -> 0);
+    }
+
+    @Override
+    public void addAll(Collection<? extends CharSequence> terms, ToDoubleFunction<? super CharSequence> weight) {
+        for (CharSequence term : terms) {
+            if (term.length() == 0) {
+                continue;
+            }
+            Node node = insert(term);
+            if (node.term < 0) {
+                node.term = this.terms.size();
+                this.terms.add(term);
+                if (node.term == weights.length) {
+                    weights = Arrays.copyOf(weights, 2 * weights.length);
+                }
+            }
+            weights[node.term] = weight.applyAsDouble(term);
+        }
+        refresh();
+    }
+
+    @Override
+    public List<CharSequence> allMatches(CharSequence prefix) {
+        return allMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
+        Node node = find(prefix);
+        if (node == null) {
+            return Collections.emptyIterator();
+        }
+        PrimitiveIterator.OfInt ids = new TermIterator(node.mid);
+        return new Iterator<>() {
+            private boolean term = node.term >= 0;
+
+            @Override
+            public boolean hasNext() {
+                return term || ids.hasNext();
+            }
+
+            @Override
+            public CharSequence next() {
+                if (term) {
+                    term = false;
+                    return terms.get(node.term);
+                }
+                return terms.get(ids.nextInt());
+            }
+        };
+    }
+
+    @Override
+    public int countMatches(CharSequence prefix) {
+        Node node = find(prefix);
+        if (node == null) {
+            return 0;
+        }
+        return (node.term >= 0 ? 1 : 0) + count(node.mid);
+    }
+
+    @Override
+    public List<CharSequence> topMatches(CharSequence prefix, int k) {
+        return topMatches(find(prefix), k);
+    }
+
+    /**
+     * Returns a new session for a sequence of queries typed one keystroke at a time.
+     *
+     * @return a new session with no previous query.
+     */
+    public Session session() {
+        return new Session();
+    }
+
+    /**
+     * Returns up to k terms in the subtree of the node for the last character of a prefix, or none if the node is null.
+     */
+    private List<CharSequence> topMatches(Node node, int k) {
+        if (node == null || k <= 0) {
+            return new ArrayList<>();
+        } else if (k > capacity) {
+            IntStream.Builder ids = IntStream.builder();
+            if (node.term >= 0) {
+                ids.add(node.term);
+            }
+            forEachTerm(node.mid, ids);
+            return ids.build().boxed()
+                    .sorted(this::compare)
+                    .limit(k)
+                    .map(terms::get)
+                    .collect(Collectors.toList());
+        }
+        int[] best = merge(node.term, node.mid == null ? NONE : node.mid.best, NONE, NONE);
+        List<CharSequence> result = new ArrayList<>(Math.min(k, best.length));
+        for (int i = 0; i < best.length && i < k; i += 1) {
+            result.add(terms.get(best[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the node for the last character of the given term, adding nodes as necessary.
+     */
+    private Node insert(CharSequence term) {
+        if (overallRoot == null) {
+            overallRoot = new Node(term.charAt(0));
+        }
+        Node node = overallRoot;
+        int i = 0;
+        while (true) {
+            char c = term.charAt(i);
+            if (c < node.data) {
+                if (node.left == null) {
+                    node.left = new Node(c);
+                }
+                node = node.left;
+            } else if (c > node.data) {
+                if (node.right == null) {
+                    node.right = new Node(c);
+                }
+                node = node.right;
+            } else if (i + 1 < term.length()) {
+                i += 1;
+                if (node.mid == null) {
+                    node.mid = new Node(term.charAt(i));
+                }
+                node = node.mid;
+            } else {
+                return node;
+            }
+        }
+    }
+
+    /**
+     * Returns the node for the last character of the given prefix, or null if no term starts with the prefix.
+     */
+    Node find(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return null;
+        }
+        return find(overallRoot, prefix, 0);
+    }
+
+    /**
+     * Returns the node for the last character of the given prefix, searching from the given node for the character at
+     * the given index, or null if no term starts with the prefix.
+     */
+    private static Node find(Node root, CharSequence prefix, int start) {
+        Node node = root;
+        int i = start;
+        while (node != null) {
+            char c = prefix.charAt(i);
+            if (c < node.data) {
+                node = node.left;
+            } else if (c > node.data) {
+                node = node.right;
+            } else if (i + 1 < prefix.length()) {
+                node = node.mid;
+                i += 1;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Recomputes the best-term cache and term count of every node.
+     */
+    private void refresh() {
+        if (overallRoot == null) {
+            return;
+        }
+        // Every node appears after its parent in preorder, so computing in reverse preorder visits children first.
+        List<Node> preorder = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(overallRoot);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            preorder.add(node);
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+            if (node.mid != null) {
+                stack.push(node.mid);
+            }
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+        }
+        for (int i = preorder.size() - 1; i >= 0; i -= 1) {
+            Node node = preorder.get(i);
+            node.best = merge(
+                    node.term,
+                    node.left == null ? NONE : node.left.best,
+                    node.mid == null ? NONE : node.mid.best,
+                    node.right == null ? NONE : node.right.best
+            );
+            node.count = (node.term >= 0 ? 1 : 0) + count(node.left) + count(node.mid) + count(node.right);
+        }
+    }
+
+    /**
+     * Returns the best term ids, up to the capacity, from the given term id (or -1) and sorted arrays of term ids.
+     * Returns one of the given arrays without copying if it is the only non-empty source.
+     */
+    int[] merge(int term, int[] a, int[] b, int[] c) {
+        if (term < 0) {
+            if (b.length == 0 && c.length == 0) {
+                return a;
+            } else if (a.length == 0 && c.length == 0) {
+                return b;
+            } else if (a.length == 0 && b.length == 0) {
+                return c;
+            }
+        }
+        int total = (term < 0 ? 0 : 1) + a.length + b.length + c.length;
+        int[] result = new int[Math.min(capacity, total)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        boolean termUsed = term < 0;
+        for (int n = 0; n < result.length; n += 1) {
+            int best = -1;
+            if (!termUsed) {
+                best = term;
+            }
+            if (i < a.length && (best < 0 || compare(a[i], best) < 0)) {
+                best = a[i];
+            }
+            if (j < b.length && (best < 0 || compare(b[j], best) < 0)) {
+                best = b[j];
+            }
+            if (k < c.length && (best < 0 || compare(c[k], best) < 0)) {
+                best = c[k];
+            }
+            if (!termUsed && best == term) {
+                termUsed = true;
+            } else if (i < a.length && best == a[i]) {
+                i += 1;
+            } else if (j < b.length && best == b[j]) {
+                j += 1;
+            } else {
+                k += 1;
+            }
+            result[n] = best;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of terms in the subtree rooted at the given node, or 0 if the node is null.
+     */
+    private static int count(Node node) {
+        return node == null ? 0 : node.count;
+    }
+
+    /**
+     * Compares two term ids so that higher weights come first, breaking ties by insertion order.
+     */
+    int compare(int a, int b) {
+        int cmp = Double.compare(weights[b], weights[a]);
+        if (cmp == 0) {
+            return Integer.compare(a, b);
+        }
+        return cmp;
+    }
+
+    /**
+     * Queries typed one keystroke at a time, such as "S", "Se", "Sea". The session remembers the node for the last
+     * prefix, so a query that extends it only walks the added characters instead of searching from the root. Nodes
+     * are never removed, so the remembered node stays valid as terms are added.
+     */
+    public class Session {
+        /**
+         * The last prefix queried, or null before the first query.
+         */
+        private String prefix;
+        /**
+         * The node for the last character of the last prefix, or null if no term started with it.
+         */
+        private Node node;
+
+        /**
+         * Returns up to k autocompletion terms that match the given prefix in descending order of weight, continuing
+         * from the last prefix if the given prefix extends it.
+         *
+         * @param prefix search query.
+         * @param k      maximum number of terms to return.
+         * @return up to k matching terms in descending order of weight.
+         */
+        public synchronized List<CharSequence> topMatches(CharSequence prefix, int k) {
+            if (prefix == null || prefix.length() == 0) {
+                this.prefix = null;
+                this.node = null;
+                return new ArrayList<>();
+            }
+            String next = prefix.toString();
+            if (node != null && next.startsWith(this.prefix)) {
+                if (next.length() > this.prefix.length()) {
+                    node = find(node.mid, next, this.prefix.length());
+                }
+            } else {
+                node = find(next);
+            }
+            this.prefix = next;
+            return TopKTernarySearchTreeAutocomplete.this.topMatches(node, k);
+        }
+    }
+
+    /**
+     * Applies the action to the id of every term in the subtree rooted at the given node in lexicographic order.
+     */
+    static void forEachTerm(Node root, IntConsumer action) {
+        new TermIterator(root).forEachRemaining(action);
+    }
+
+    /**
+     * Iterator over the ids of the terms in a subtree in lexicographic order. Only walks as far as needed to find the
+     * next term.
+     */
+    static class TermIterator implements PrimitiveIterator.OfInt {
+        private final Deque<Node> nodes = new ArrayDeque<>();
+        private final Deque<Boolean> expand = new ArrayDeque<>();
+        private int next;
+
+        /**
+         * Constructs an iterator over the terms in the subtree rooted at the given node.
+         *
+         * @param root the root of the subtree, or null.
+         */
+        TermIterator(Node root) {
+            if (root != null) {
+                nodes.push(root);
+                expand.push(true);
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            int result = next;
+            advance();
+            return result;
+        }
+
+        /**
+         * Walks the tree in order until the next term is found or every node has been visited.
+         */
+        private void advance() {
+            next = -1;
+            while (next < 0 && !nodes.isEmpty()) {
+                Node node = nodes.pop();
+                if (!expand.pop()) {
+                    next = node.term;
+                    continue;
+                }
+                // Push in reverse order: left subtree, this term, middle subtree, then right subtree.
+                if (node.right != null) {
+                    nodes.push(node.right);
+                    expand.push(true);
+                }
+                if (node.mid != null) {
+                    nodes.push(node.mid);
+                    expand.push(true);
+                }
+                if (node.term >= 0) {
+                    nodes.push(node);
+                    expand.push(false);
+                }
+                if (node.left != null) {
+                    nodes.push(node.left);
+                    expand.push(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * A search tree node representing a single character in an autocompletion term.
+     */
+    static class Node {
+        final char data;
+        int term;
+        int[] best;
+        int count;
+        Node left;
+        Node mid;
+        Node right;
+
+        /**
+         * Constructs a new node with the given character and no term or children.
+         *
+         * @param data the character represented by this node.
+         */
+        Node(char data) {
+            this.data = data;
+            this.term = -1;
+            this.best = NONE;
+            this.count = 0;
+            this.left = null;
+            this.mid = null;
+            this.right = null;
+        }
+    }
+}
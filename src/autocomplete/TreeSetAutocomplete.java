@@ -27,21 +27,17 @@ public class TreeSetAutocomplete implements Autocomplete {
 
     @Override
     public List<CharSequence> allMatches(CharSequence prefix) {
-        List<CharSequence> result = new ArrayList<>();
+        return allMatches(prefix, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<CharSequence> matches(CharSequence prefix) {
         if (prefix == null || prefix.length() == 0) {
-            return result;
-        }
-        CharSequence start = terms.ceiling(prefix);
-        if (start == null) {
-            return result;
-        }
-        for (CharSequence term : terms.tailSet(start)) {
-            if (Autocomplete.isPrefixOf(prefix, term)) {
-                result.add(term);
-            } else {
-                return result;
-            }
+            return Collections.emptyIterator();
         }
-        return result;
+        // Matching terms are consecutive in sorted order, starting from the prefix itself.
+        return terms.tailSet(prefix, true).stream()
+                .takeWhile(term -> Autocomplete.isPrefixOf(prefix, term))
+                .iterator();
     }
 }
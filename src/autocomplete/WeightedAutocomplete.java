@@ -0,0 +1,33 @@
+package autocomplete;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * {@link Autocomplete} that associates a weight with each term and can return only the highest-weighted matches.
+ * Terms added through {@link #addAll(Collection)} have weight 0.
+ *
+ * @see Autocomplete
+ * @see TopKTernarySearchTreeAutocomplete
+ */
+public interface WeightedAutocomplete extends Autocomplete {
+    /**
+     * Adds the given collection of autocompletion terms with the given weights. Adding a term that is already present
+     * replaces its weight.
+     *
+     * @param terms  collection containing elements to be added.
+     * @param weight function returning the weight of each term, where larger weights are better matches.
+     */
+    void addAll(Collection<? extends CharSequence> terms, ToDoubleFunction<? super CharSequence> weight);
+
+    /**
+     * Returns up to k autocompletion terms that match the given prefix in descending order of weight. Terms with
+     * equal weights are returned in the order they were first added.
+     *
+     * @param prefix search query.
+     * @param k      maximum number of terms to return.
+     * @return up to k matching terms in descending order of weight.
+     */
+    List<CharSequence> topMatches(CharSequence prefix, int k);
+}
@@ -1,21 +1,31 @@
 package autocomplete.cities;
 
-import autocomplete.Autocomplete;
-import autocomplete.TreeSetAutocomplete;
+import autocomplete.FuzzyTernarySearchTreeAutocomplete;
+import autocomplete.MappedAutocomplete;
+import autocomplete.WeightedAutocomplete;
+import tsv.TsvReader;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.zip.GZIPInputStream;
 
 /**
- * Search the world's cities.
+ * Search the world's cities. Given the path to an index file, searches the cities in the index file, writing it from
+ * the dataset first if it does not exist, so later runs start without parsing the dataset. Typo correction is only
+ * available without an index file.
  */
 class Cities {
     /**
      * Maximum number of matches to print.
      */
     private static final int MAX_MATCHES = 10;
+    /**
+     * Maximum number of typos corrected when there are no exact matches.
+     */
+    private static final int MAX_EDITS = FuzzyTernarySearchTreeAutocomplete.MAX_EDITS;
     /**
      * Maximum number of cities to parse.
      */
@@ -26,14 +36,25 @@ class Cities {
     private static final String PATH = "data/cities.tsv.gz";
 
     public static void main(String[] args) throws IOException {
-        Map<String, Integer> cities = new LinkedHashMap<>();
-        Scanner input = new Scanner(new GZIPInputStream(new FileInputStream(PATH)));
-        for (int i = 0; i < MAX_CITIES && input.hasNextLine(); i += 1) {
-            Scanner line = new Scanner(input.nextLine()).useDelimiter("\t");
-            cities.put(line.next(), line.nextInt());
+        Path index = args.length > 0 ? Path.of(args[0]) : null;
+        WeightedAutocomplete autocomplete;
+        if (index != null && Files.exists(index)) {
+            autocomplete = MappedAutocomplete.open(index);
+        } else {
+            Map<String, Integer> cities = new LinkedHashMap<>();
+            try (TsvReader input = new TsvReader(new GZIPInputStream(new FileInputStream(PATH)), true)) {
+                for (int i = 0; i < MAX_CITIES && input.next(); i += 1) {
+                    cities.put(input.column(0).toString(), input.intColumn(1));
+                }
+            }
+            if (index != null) {
+                MappedAutocomplete.write(index, cities.keySet(), cities::get);
+                autocomplete = MappedAutocomplete.open(index);
+            } else {
+                autocomplete = new FuzzyTernarySearchTreeAutocomplete(MAX_MATCHES);
+                autocomplete.addAll(cities.keySet(), cities::get);
+            }
         }
-        Autocomplete autocomplete = new TreeSetAutocomplete();
-        autocomplete.addAll(cities.keySet());
 
         Scanner stdin = new Scanner(System.in);
         System.out.print("Query: ");
@@ -42,11 +63,17 @@ class Cities {
             if (prefix.isEmpty()) {
                 System.exit(0);
             }
-            List<CharSequence> matches = autocomplete.allMatches(prefix);
-            System.out.println(matches.size() + " matches");
-            matches.sort(Comparator.comparingInt(cities::get).reversed());
-            for (int i = 0; i < Math.min(matches.size(), MAX_MATCHES); i += 1) {
-                System.out.println(matches.get(i));
+            int count = autocomplete.countMatches(prefix);
+            System.out.println(count + " matches");
+            for (CharSequence match : autocomplete.topMatches(prefix, MAX_MATCHES)) {
+                System.out.println(match);
+            }
+            if (count == 0 && autocomplete instanceof FuzzyTernarySearchTreeAutocomplete) {
+                System.out.println("Did you mean:");
+                FuzzyTernarySearchTreeAutocomplete fuzzy = (FuzzyTernarySearchTreeAutocomplete) autocomplete;
+                for (CharSequence match : fuzzy.fuzzyMatches(prefix, MAX_EDITS, MAX_MATCHES)) {
+                    System.out.println(match);
+                }
             }
             System.out.println();
             System.out.print("Query: ");
@@ -1,16 +1,16 @@
 package autocomplete.dna;
 
-import autocomplete.Autocomplete;
-import autocomplete.TreeSetAutocomplete;
-
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Scanner;
 import java.util.zip.GZIPInputStream;
 
 /**
- * Search DNA by autocompleting across all suffixes.
+ * Search DNA by autocompleting across all suffixes using a suffix array. Given a file of queries, one per line, prints
+ * the number of occurrences of each query using a k-mer index instead.
  */
 class DNA {
     /**
@@ -23,9 +23,16 @@ class DNA {
     private static final String PATH = "data/ecoli.txt.gz";
 
     public static void main(String[] args) throws IOException {
-        String dna = new Scanner(new GZIPInputStream(new FileInputStream(PATH))).next();
-        Autocomplete autocomplete = new TreeSetAutocomplete();
-        autocomplete.addAll(new SuffixCollection(dna));
+        PackedDna dna = PackedDna.read(new GZIPInputStream(new FileInputStream(PATH)));
+        if (args.length > 0) {
+            List<String> queries = Files.readAllLines(Path.of(args[0]));
+            int[] counts = new KmerIndex(dna).countMatches(queries);
+            for (int i = 0; i < counts.length; i += 1) {
+                System.out.println(counts[i] + "\t" + queries.get(i));
+            }
+            return;
+        }
+        SuffixArray suffixes = new SuffixArray(dna);
 
         Scanner stdin = new Scanner(System.in);
         System.out.print("Query: ");
@@ -34,10 +41,8 @@ class DNA {
             if (prefix.isEmpty()) {
                 System.exit(0);
             }
-            List<CharSequence> matches = autocomplete.allMatches(prefix);
-            System.out.println(matches.size() + " matches");
-            for (int i = 0; i < Math.min(matches.size(), MAX_MATCHES); i += 1) {
-                CharSequence match = matches.get(i);
+            System.out.println(suffixes.countMatches(prefix) + " matches");
+            for (CharSequence match : suffixes.allMatches(prefix, MAX_MATCHES)) {
                 if (match.length() >= 97) {
                     match = match.subSequence(0, 97) + "...";
                 }
@@ -0,0 +1,210 @@
+package autocomplete.dna;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Direct-address index of every k-length window (k-mer) of a DNA sequence. Each k-mer is encoded with 2 bits per base
+ * into an integer key, and the starting positions of the windows with each key are stored together in one array, in
+ * increasing order, so the occurrences of a k-mer are found with two array reads instead of a search.
+ * <p>
+ * A query at least k bases long is seeded by the positions of its rarest k-mer, and each candidate is verified by
+ * comparing the whole query 32 bases at a time. The occurrences of a query shorter than k are the windows with keys
+ * in a contiguous range, since the query determines the leading bits of the key, so they are counted in constant time.
+ */
+class KmerIndex {
+    /**
+     * Default window length, for a table of 4<sup>12</sup> keys (64 MB of offsets).
+     */
+    static final int DEFAULT_K = 12;
+    /**
+     * Maximum window length, for a table of 4<sup>13</sup> keys (256 MB of offsets). Each longer window would
+     * quadruple the table.
+     */
+    static final int MAX_K = 13;
+    /**
+     * The indexed sequence.
+     */
+    private final PackedDna dna;
+    /**
+     * Window length.
+     */
+    private final int k;
+    /**
+     * Start of each key's positions in {@link #positions}, plus the total number of windows.
+     */
+    private final int[] offsets;
+    /**
+     * Starting position of every window, grouped by key and in increasing order within each key.
+     */
+    private final int[] positions;
+
+    /**
+     * Constructs an index of the windows of length {@value #DEFAULT_K} of the sequence.
+     *
+     * @param dna the sequence to index.
+     */
+    KmerIndex(PackedDna dna) {
+        this(dna, DEFAULT_K);
+    }
+
+    /**
+     * Constructs an index of the windows of length k of the sequence.
+     *
+     * @param dna the sequence to index.
+     * @param k   the window length.
+     * @throws IllegalArgumentException if k is not between 1 and {@value #MAX_K}.
+     */
+    KmerIndex(PackedDna dna, int k) {
+        if (k < 1 || k > MAX_K) {
+            throw new IllegalArgumentException("k must be between 1 and " + MAX_K + ": " + k);
+        }
+        this.dna = dna;
+        this.k = k;
+        int n = dna.length();
+        int keys = 1 << (2 * k);
+        int mask = keys - 1;
+        // Count the windows with each key, then turn the counts into the start of each key's positions.
+        this.offsets = new int[keys + 1];
+        int key = 0;
+        for (int i = 0; i < n; i += 1) {
+            key = ((key << 2) | dna.code(i)) & mask;
+            if (i >= k - 1) {
+                offsets[key + 1] += 1;
+            }
+        }
+        for (int i = 0; i < keys; i += 1) {
+            offsets[i + 1] += offsets[i];
+        }
+        // Place each window using the offsets as cursors, which leaves each offset at the start of the next key, then
+        // shift the offsets back into place instead of allocating a separate array of cursors.
+        this.positions = new int[offsets[keys]];
+        for (int i = 0; i < n; i += 1) {
+            key = ((key << 2) | dna.code(i)) & mask;
+            if (i >= k - 1) {
+                positions[offsets[key]] = i - k + 1;
+                offsets[key] += 1;
+            }
+        }
+        System.arraycopy(offsets, 0, offsets, 1, keys - 1);
+        offsets[0] = 0;
+    }
+
+    /**
+     * Returns the number of occurrences of the query in the sequence.
+     *
+     * @param query the bases to find.
+     * @return the number of positions where the sequence starts with the query.
+     */
+    int countMatches(CharSequence query) {
+        return find(query, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Returns the number of occurrences of each query in the sequence, counting the queries in parallel.
+     *
+     * @param queries the bases to find.
+     * @return the number of occurrences of each query, in the same order as the queries.
+     */
+    int[] countMatches(List<? extends CharSequence> queries) {
+        return IntStream.range(0, queries.size()).parallel().map(i -> countMatches(queries.get(i))).toArray();
+    }
+
+    /**
+     * Returns up to the given number of positions where the sequence starts with the query. Positions are in
+     * increasing order for queries at least k bases long, and grouped by the k bases starting at each position
+     * otherwise.
+     *
+     * @param query the bases to find.
+     * @param limit maximum number of positions to return.
+     * @return up to limit positions of occurrences of the query.
+     */
+    int[] positions(CharSequence query, int limit) {
+        int[] result = new int[Math.max(0, Math.min(limit, countMatches(query)))];
+        find(query, result.length, result);
+        return result;
+    }
+
+    /**
+     * Finds up to limit occurrences of the query, storing their positions in the result unless it is null, and returns
+     * the number found.
+     */
+    private int find(CharSequence query, int limit, int[] result) {
+        int m = query.length();
+        int n = dna.length();
+        if (m == 0 || limit <= 0) {
+            return 0;
+        }
+        int[] codes = new int[m];
+        for (int i = 0; i < m; i += 1) {
+            codes[i] = dna.code(query.charAt(i));
+            if (codes[i] < 0) {
+                return 0;
+            }
+        }
+        PackedDna packed = PackedDna.of(query);
+        int count = 0;
+        if (m < k) {
+            // Windows starting with the query have every key from the query followed by all As to the query
+            // followed by all Ts.
+            int key = key(codes, 0);
+            int low = key << (2 * (k - m));
+            int high = (key + 1) << (2 * (k - m));
+            count = Math.min(limit, offsets[high] - offsets[low]);
+            if (result != null) {
+                System.arraycopy(positions, offsets[low], result, 0, count);
+            }
+            // The last k - 1 positions do not start a complete window, so check them directly.
+            for (int p = Math.max(0, n - k + 1); p + m <= n && count < limit; p += 1) {
+                if (dna.mismatch(p, packed, 0, m) == m) {
+                    if (result != null) {
+                        result[count] = p;
+                    }
+                    count += 1;
+                }
+            }
+            return count;
+        }
+        // Seed from the non-overlapping window of the query with the fewest occurrences, checking the last window too.
+        int seed = 0;
+        int seedKey = key(codes, 0);
+        for (int start = Math.min(k, m - k); start > seed; start = Math.min(start + k, m - k)) {
+            int key = key(codes, start);
+            if (size(key) < size(seedKey)) {
+                seedKey = key;
+                seed = start;
+            }
+            if (start == m - k) {
+                break;
+            }
+        }
+        for (int i = offsets[seedKey]; i < offsets[seedKey + 1] && count < limit; i += 1) {
+            int p = positions[i] - seed;
+            if (p >= 0 && p + m <= n && dna.mismatch(p, packed, 0, m) == m) {
+                if (result != null) {
+                    result[count] = p;
+                }
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the key of the codes from the start, up to k of them.
+     */
+    private int key(int[] codes, int start) {
+        int key = 0;
+        for (int i = start; i < codes.length && i < start + k; i += 1) {
+            key = (key << 2) | codes[i];
+        }
+        return key;
+    }
+
+    /**
+     * Returns the number of windows with the given key.
+     */
+    private int size(int key) {
+        return offsets[key + 1] - offsets[key];
+    }
+}
@@ -0,0 +1,220 @@
+package autocomplete.dna;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * DNA sequence that stores each base in 2 bits, 32 bases to a {@code long}. Bases are packed from the most significant
+ * bits down in alphabetical order (A, C, G, T), so comparing two aligned words as unsigned numbers compares 32 bases at
+ * once, and the first differing base is found from the leading zeros of their XOR.
+ * <p>
+ * A sequence is either all uppercase or all lowercase, and {@link #charAt(int)} returns bases in the same case as the
+ * text it was read from.
+ */
+class PackedDna implements CharSequence {
+    /**
+     * Bases in the order of their 2-bit codes in each case.
+     */
+    private static final String UPPERCASE = "ACGT";
+    private static final String LOWERCASE = "acgt";
+    /**
+     * Number of bases packed into each word.
+     */
+    private static final int BASES_PER_WORD = 32;
+    /**
+     * Packed bases of the underlying sequence, which may be longer than this view of it.
+     */
+    private final long[] words;
+    /**
+     * Bases in the order of their codes.
+     */
+    private final String alphabet;
+    /**
+     * Index of the first base of this sequence in the underlying sequence.
+     */
+    private final int offset;
+    /**
+     * Number of bases in this sequence.
+     */
+    private final int length;
+
+    /**
+     * Constructs a view of the given bases of packed words.
+     *
+     * @param words    packed bases of the underlying sequence.
+     * @param alphabet bases in the order of their codes.
+     * @param offset   index of the first base of the view in the underlying sequence.
+     * @param length   number of bases in the view.
+     */
+    private PackedDna(long[] words, String alphabet, int offset, int length) {
+        this.words = words;
+        this.alphabet = alphabet;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns the packed sequence of the given bases.
+     *
+     * @param bases the bases, all uppercase or all lowercase.
+     * @return the packed sequence of the given bases.
+     * @throws IllegalArgumentException if there is a character other than a base in the same case as the first base.
+     */
+    static PackedDna of(CharSequence bases) {
+        Builder builder = new Builder();
+        for (int i = 0; i < bases.length(); i += 1) {
+            builder.append(bases.charAt(i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads a packed sequence from the input, ignoring whitespace, without storing the text in memory. Closes the
+     * input after reading it.
+     *
+     * @param input the text of the bases, all uppercase or all lowercase.
+     * @return the packed sequence of the bases in the input.
+     * @throws IOException              if an I/O error occurs.
+     * @throws IllegalArgumentException if there is a character other than a base in the same case as the first base.
+     */
+    static PackedDna read(InputStream input) throws IOException {
+        Builder builder = new Builder();
+        try (InputStream in = new BufferedInputStream(input)) {
+            for (int c = in.read(); c >= 0; c = in.read()) {
+                if (!Character.isWhitespace(c)) {
+                    builder.append((char) c);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return alphabet.charAt(code(index));
+    }
+
+    @Override
+    public CharSequence subSequence(int begin, int end) {
+        if (begin < 0 || begin > end || end > length) {
+            throw new IndexOutOfBoundsException("begin " + begin + ", end " + end + ", length " + length);
+        }
+        return new PackedDna(words, alphabet, offset + begin, end - begin);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < length; i += 1) {
+            result.append(charAt(i));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the 2-bit code of the base at the given index, without checking the index.
+     *
+     * @param index index into this sequence.
+     * @return the code of the base at the index, from 0 for A to 3 for T.
+     */
+    int code(int index) {
+        int i = offset + index;
+        return (int) (words[i / BASES_PER_WORD] >>> (62 - 2 * (i % BASES_PER_WORD))) & 3;
+    }
+
+    /**
+     * Returns the 2-bit code of the given base, or -1 if it is not a base in the same case as this sequence.
+     *
+     * @param base the base to encode.
+     * @return the code of the base, from 0 for A to 3 for T, or -1.
+     */
+    int code(char base) {
+        return alphabet.indexOf(base);
+    }
+
+    /**
+     * Returns the number of bases in a row that are equal in this sequence from the given index and in the other
+     * sequence from the other index, comparing 32 bases at a time and stopping after at most max bases.
+     *
+     * @param index      index into this sequence.
+     * @param other      the other sequence in the same alphabet.
+     * @param otherIndex index into the other sequence.
+     * @param max        maximum number of bases to compare.
+     * @return the length of the common prefix of the two subsequences, up to max.
+     */
+    int mismatch(int index, PackedDna other, int otherIndex, int max) {
+        max = Math.min(max, Math.min(length - index, other.length - otherIndex));
+        for (int n = 0; n < max; n += BASES_PER_WORD) {
+            long difference = word(index + n) ^ other.word(otherIndex + n);
+            if (difference != 0) {
+                return Math.min(max, n + Long.numberOfLeadingZeros(difference) / 2);
+            }
+        }
+        return Math.max(max, 0);
+    }
+
+    /**
+     * Returns the 32 bases starting from the given index as a word, padded with zero bits past the end.
+     */
+    private long word(int index) {
+        int i = offset + index;
+        int w = i / BASES_PER_WORD;
+        int shift = 2 * (i % BASES_PER_WORD);
+        long result = words[w] << shift;
+        if (shift > 0 && w + 1 < words.length) {
+            result |= words[w + 1] >>> (64 - shift);
+        }
+        return result;
+    }
+
+    /**
+     * Growable array of packed bases.
+     */
+    private static class Builder {
+        private long[] words = new long[16];
+        /**
+         * Bases in the order of their codes, chosen from the case of the first base.
+         */
+        private String alphabet = null;
+        private int length = 0;
+
+        /**
+         * Appends the base to the sequence.
+         *
+         * @throws IllegalArgumentException if the character is not a base in the alphabet.
+         */
+        void append(char base) {
+            if (alphabet == null) {
+                alphabet = Character.isLowerCase(base) ? LOWERCASE : UPPERCASE;
+            }
+            int code = alphabet.indexOf(base);
+            if (code < 0) {
+                throw new IllegalArgumentException(
+                        "Not a base in " + alphabet + " at index " + length + ": '" + base + "'"
+                );
+            } else if (length / BASES_PER_WORD == words.length) {
+                words = Arrays.copyOf(words, 2 * words.length);
+            }
+            words[length / BASES_PER_WORD] |= (long) code << (62 - 2 * (length % BASES_PER_WORD));
+            length += 1;
+        }
+
+        /**
+         * Returns the sequence of the bases appended so far.
+         */
+        PackedDna build() {
+            int size = (length + BASES_PER_WORD - 1) / BASES_PER_WORD;
+            return new PackedDna(Arrays.copyOf(words, size), alphabet == null ? UPPERCASE : alphabet, 0, length);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package autocomplete.dna;
+
+import java.util.*;
+
+/**
+ * Suffix array over a text that finds the suffixes starting with a query by binary search. The suffix array is the
+ * starting index of every suffix in sorted order, so the suffixes starting with a prefix form one contiguous range.
+ * <p>
+ * The array is built in linear time with the SA-IS algorithm (Nong, Zhang and Chan, 2009), and the longest common
+ * prefix (LCP) of adjacent suffixes with Kasai's algorithm. Searches use the LCP of each binary search midpoint with
+ * the bounds of its search interval (Manber and Myers, 1993), so characters of the query already known to match are
+ * never compared again and a search costs O(m + log n) character comparisons for a query of length m. Matches are
+ * returned as views of the text, so only the suffixes actually returned are created.
+ */
+class SuffixArray {
+    /**
+     * The text whose suffixes are indexed.
+     */
+    private final CharSequence text;
+    /**
+     * Views of the suffixes of the text.
+     */
+    private final SuffixCollection suffixes;
+    /**
+     * Starting index of each suffix in sorted order.
+     */
+    private final int[] sa;
+    /**
+     * LCP of the suffix at each index with the suffix at the lower bound of the search interval that has the index
+     * as its midpoint.
+     */
+    private final int[] lowerLcp;
+    /**
+     * LCP of the suffix at each index with the suffix at the upper bound of the search interval that has the index
+     * as its midpoint.
+     */
+    private final int[] upperLcp;
+
+    /**
+     * Constructs a suffix array over every non-empty suffix of the text.
+     *
+     * @param text the text whose suffixes are indexed.
+     */
+    SuffixArray(CharSequence text) {
+        this.text = text;
+        this.suffixes = new SuffixCollection(text);
+        int n = text.length();
+        // Number the characters in sorted order so that the alphabet is as small as possible.
+        int[] codes = new int[Character.MAX_VALUE + 1];
+        for (int i = 0; i < n; i += 1) {
+            codes[text.charAt(i)] = 1;
+        }
+        int upper = -1;
+        for (int c = 0; c < codes.length; c += 1) {
+            if (codes[c] > 0) {
+                upper += 1;
+                codes[c] = upper;
+            }
+        }
+        int[] s = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            s[i] = codes[text.charAt(i)];
+        }
+        this.sa = sais(s, Math.max(upper, 0));
+        int[] lcp = lcp(s, sa);
+        this.lowerLcp = new int[n];
+        this.upperLcp = new int[n];
+        intervalLcp(lcp, -1, n);
+    }
+
+    /**
+     * Returns the number of suffixes of the text starting with the prefix.
+     *
+     * @param prefix search query.
+     * @return the number of suffixes starting with the prefix.
+     */
+    int countMatches(CharSequence prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return 0;
+        }
+        return search(prefix, true) - search(prefix, false);
+    }
+
+    /**
+     * Returns up to the given number of suffixes of the text that start with the prefix, in sorted order.
+     *
+     * @param prefix search query.
+     * @param limit  maximum number of suffixes to return.
+     * @return up to limit suffixes starting with the prefix.
+     */
+    List<CharSequence> allMatches(CharSequence prefix, int limit) {
+        List<CharSequence> result = new ArrayList<>();
+        if (prefix == null || prefix.length() == 0) {
+            return result;
+        }
+        int start = search(prefix, false);
+        int end = search(prefix, true);
+        for (int i = start; i < end && result.size() < limit; i += 1) {
+            result.add(suffixes.get(sa[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of suffixes in the array.
+     *
+     * @return the number of suffixes in the array.
+     */
+    int size() {
+        return sa.length;
+    }
+
+    /**
+     * Returns the index of the first suffix that is greater than the prefix, or greater than or equal to the prefix if
+     * not after, where a suffix starting with the prefix is treated as equal to it.
+     */
+    private int search(CharSequence prefix, boolean after) {
+        int m = prefix.length();
+        int n = sa.length;
+        // Suffixes at or below low compare less (or equal, if after) and suffixes at or above high compare greater.
+        // Bounds outside the array are sentinels sharing no prefix with anything.
+        int low = -1;
+        int high = n;
+        int lowMatch = 0;
+        int highMatch = 0;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            int match;
+            if (lowMatch >= highMatch && lowerLcp[mid] != lowMatch) {
+                // The midpoint differs from the prefix where it differs from the lower bound, or where the lower bound
+                // differs from the prefix, whichever comes first, and compares the same way as that bound.
+                if (lowerLcp[mid] > lowMatch) {
+                    low = mid;
+                } else {
+                    high = mid;
+                    highMatch = lowerLcp[mid];
+                }
+                continue;
+            } else if (lowMatch < highMatch && upperLcp[mid] != highMatch) {
+                if (upperLcp[mid] > highMatch) {
+                    high = mid;
+                } else {
+                    low = mid;
+                    lowMatch = upperLcp[mid];
+                }
+                continue;
+            }
+            // Compare the characters after the ones the midpoint is known to share with the prefix.
+            int start = sa[mid];
+            match = Math.max(lowMatch, highMatch);
+            while (match < m && start + match < n && text.charAt(start + match) == prefix.charAt(match)) {
+                match += 1;
+            }
+            if (match == m ? after : start + match == n || text.charAt(start + match) < prefix.charAt(match)) {
+                low = mid;
+                lowMatch = match;
+            } else {
+                high = mid;
+                highMatch = match;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Fills the LCP of each midpoint with the bounds of its search interval for the subintervals of the interval
+     * between low and high, and returns the LCP of the suffixes at low and high, or 0 if either is out of bounds.
+     */
+    private int intervalLcp(int[] lcp, int low, int high) {
+        if (high - low <= 1) {
+            return low >= 0 && high < sa.length ? lcp[high] : 0;
+        }
+        int mid = (low + high) >>> 1;
+        lowerLcp[mid] = intervalLcp(lcp, low, mid);
+        upperLcp[mid] = intervalLcp(lcp, mid, high);
+        return Math.min(lowerLcp[mid], upperLcp[mid]);
+    }
+
+    /**
+     * Returns the LCP array for the string and its suffix array, where entry i is the length of the longest common
+     * prefix of the suffixes at indices i - 1 and i, and entry 0 is 0 (Kasai et al., 2001).
+     */
+    private static int[] lcp(int[] s, int[] sa) {
+        int n = s.length;
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            rank[sa[i]] = i;
+        }
+        int[] result = new int[n];
+        // The LCP of each suffix with its predecessor is at most one less than that of the suffix one longer.
+        int h = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (h > 0) {
+                h -= 1;
+            }
+            if (rank[i] == 0) {
+                h = 0;
+                continue;
+            }
+            int j = sa[rank[i] - 1];
+            while (i + h < n && j + h < n && s[i + h] == s[j + h]) {
+                h += 1;
+            }
+            result[rank[i]] = h;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the suffix array of the string of integers between 0 and upper (inclusive) using SA-IS. A suffix that is
+     * a prefix of another suffix comes first.
+     */
+    private static int[] sais(int[] s, int upper) {
+        int n = s.length;
+        if (n == 0) {
+            return new int[0];
+        } else if (n == 1) {
+            return new int[]{0};
+        } else if (n == 2) {
+            return s[0] < s[1] ? new int[]{0, 1} : new int[]{1, 0};
+        }
+        // Classify each suffix as S-type (smaller than the next suffix) or L-type (larger).
+        boolean[] ls = new boolean[n];
+        for (int i = n - 2; i >= 0; i -= 1) {
+            ls[i] = s[i] == s[i + 1] ? ls[i + 1] : s[i] < s[i + 1];
+        }
+        // Start of the L-type and S-type suffixes of each character's bucket.
+        int[] sumL = new int[upper + 2];
+        int[] sumS = new int[upper + 2];
+        for (int i = 0; i < n; i += 1) {
+            if (!ls[i]) {
+                sumS[s[i]] += 1;
+            } else {
+                sumL[s[i] + 1] += 1;
+            }
+        }
+        for (int i = 0; i <= upper; i += 1) {
+            sumS[i] += sumL[i];
+            if (i < upper) {
+                sumL[i + 1] += sumS[i];
+            }
+        }
+        // Find the leftmost S-type (LMS) suffixes, those following an L-type suffix.
+        int[] lmsMap = new int[n + 1];
+        Arrays.fill(lmsMap, -1);
+        int m = 0;
+        for (int i = 1; i < n; i += 1) {
+            if (!ls[i - 1] && ls[i]) {
+                lmsMap[i] = m;
+                m += 1;
+            }
+        }
+        int[] lms = new int[m];
+        for (int i = 1; i < n; i += 1) {
+            if (!ls[i - 1] && ls[i]) {
+                lms[lmsMap[i]] = i;
+            }
+        }
+        int[] sa = new int[n];
+        induce(s, upper, ls, sumL, sumS, lms, sa);
+        if (m > 0) {
+            // Name each LMS substring by its rank among the distinct LMS substrings, then sort the LMS suffixes by
+            // recursively sorting the string of names.
+            int[] sortedLms = new int[m];
+            int count = 0;
+            for (int v : sa) {
+                if (lmsMap[v] != -1) {
+                    sortedLms[count] = v;
+                    count += 1;
+                }
+            }
+            int[] names = new int[m];
+            int name = 0;
+            names[lmsMap[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i += 1) {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                int endL = lmsMap[l] + 1 < m ? lms[lmsMap[l] + 1] : n;
+                int endR = lmsMap[r] + 1 < m ? lms[lmsMap[r] + 1] : n;
+                boolean same = true;
+                if (endL - l != endR - r) {
+                    same = false;
+                } else {
+                    while (l < endL && s[l] == s[r]) {
+                        l += 1;
+                        r += 1;
+                    }
+                    if (l == n || s[l] != s[r]) {
+                        same = false;
+                    }
+                }
+                if (!same) {
+                    name += 1;
+                }
+                names[lmsMap[sortedLms[i]]] = name;
+            }
+            int[] namesSa = sais(names, name);
+            for (int i = 0; i < m; i += 1) {
+                sortedLms[i] = lms[namesSa[i]];
+            }
+            induce(s, upper, ls, sumL, sumS, sortedLms, sa);
+        }
+        return sa;
+    }
+
+    /**
+     * Fills the suffix array by placing the LMS suffixes in the given order at the ends of their buckets, then
+     * inducing the order of the L-type suffixes from left to right and the S-type suffixes from right to left.
+     */
+    private static void induce(int[] s, int upper, boolean[] ls, int[] sumL, int[] sumS, int[] lms, int[] sa) {
+        int n = s.length;
+        Arrays.fill(sa, -1);
+        int[] buf = Arrays.copyOf(sumS, upper + 1);
+        for (int d : lms) {
+            if (d != n) {
+                sa[buf[s[d]]] = d;
+                buf[s[d]] += 1;
+            }
+        }
+        buf = Arrays.copyOf(sumL, upper + 1);
+        sa[buf[s[n - 1]]] = n - 1;
+        buf[s[n - 1]] += 1;
+        for (int i = 0; i < n; i += 1) {
+            int v = sa[i];
+            if (v >= 1 && !ls[v - 1]) {
+                sa[buf[s[v - 1]]] = v - 1;
+                buf[s[v - 1]] += 1;
+            }
+        }
+        buf = Arrays.copyOf(sumL, upper + 2);
+        for (int i = n - 1; i >= 0; i -= 1) {
+            int v = sa[i];
+            if (v >= 1 && ls[v - 1]) {
+                buf[s[v - 1] + 1] -= 1;
+                sa[buf[s[v - 1] + 1]] = v - 1;
+            }
+        }
+    }
+}
@@ -42,6 +42,17 @@ class SuffixCollection extends AbstractCollection<CharSequence> {
         return data.length() - 1;
     }
 
+    /**
+     * Returns the suffix of the data starting from the given index without copying any characters.
+     *
+     * @param begin index into data representing the start (inclusive).
+     * @return the suffix of the data starting from the given index.
+     * @throws IndexOutOfBoundsException if begin is negative or greater than the length of the data.
+     */
+    public CharSequence get(int begin) {
+        return new Suffix(begin);
+    }
+
     /**
      * A suffix of the data starting from the given begin index.
      */
@@ -8,16 +8,23 @@ import minpq.ExtrinsicMinPQ;
 import java.util.*;
 
 /**
- * A* search implementation for single-pair shortest paths in an {@link AStarGraph}.
+ * A* search implementation for single-pair shortest paths in an {@link AStarGraph}. The search stops as soon as the
+ * goal is settled, and can be given a time budget after which it gives up cooperatively.
  *
  * @param <V> the type of vertices.
  * @see AStarGraph
  */
 public class AStarSolver<V> {
+    /**
+     * Number of vertices settled between checks of the time budget and thread interrupt status.
+     */
+    private static final int CHECK_INTERVAL = 256;
     private final Map<V, Edge<V>> edgeTo;
     private final Map<V, Double> distTo;
     private final V start;
     private final V goal;
+    private int settled;
+    private boolean complete;
 
     /**
      * Constructs a new instance by executing A* search on the graph from the start to the goal.
@@ -27,6 +34,21 @@ public class AStarSolver<V> {
      * @param goal  the goal vertex.
      */
     public AStarSolver(AStarGraph<V> graph, V start, V goal) {
+        this(graph, start, goal, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new instance by executing A* search on the graph from the start to the goal, giving up if the
+     * search takes longer than the given time budget or if the current thread is interrupted.
+     *
+     * @param graph        the input graph.
+     * @param start        the start vertex.
+     * @param goal         the goal vertex.
+     * @param timeoutNanos the time budget for the search in nanoseconds.
+     * @see #isComplete()
+     */
+    public AStarSolver(AStarGraph<V> graph, V start, V goal, long timeoutNanos) {
+        long began = System.nanoTime();
         this.edgeTo = new HashMap<>();
         this.distTo = new HashMap<>();
         this.start = start;
@@ -35,8 +57,17 @@ public class AStarSolver<V> {
         pq.add(start, 0.0);
         edgeTo.put(start, null);
         distTo.put(start, 0.0);
+        complete = true;
         while (!pq.isEmpty()) {
             V from = pq.removeMin();
+            settled += 1;
+            if (Objects.equals(from, goal)) {
+                break;
+            } else if (settled % CHECK_INTERVAL == 0
+                    && (System.nanoTime() - began > timeoutNanos || Thread.currentThread().isInterrupted())) {
+                complete = false;
+                break;
+            }
             for (Edge<V> e : graph.neighbors(from)) {
                 V to = e.to;
                 double oldDist = distTo.getOrDefault(to, Double.POSITIVE_INFINITY);
@@ -58,9 +89,12 @@ public class AStarSolver<V> {
     /**
      * Returns the single-pair shortest path from the stored start to the stored goal.
      *
-     * @return a list of vertices representing the shortest path.
+     * @return a list of vertices representing the shortest path, or an empty list if the search was incomplete.
      */
     public List<V> solution() {
+        if (!complete) {
+            return List.of();
+        }
         List<V> path = new ArrayList<>();
         V curr = goal;
         path.add(curr);
@@ -71,4 +105,22 @@ public class AStarSolver<V> {
         Collections.reverse(path);
         return path;
     }
+
+    /**
+     * Returns the number of vertices removed from the priority queue during the search.
+     *
+     * @return the number of vertices settled during the search.
+     */
+    public int settled() {
+        return settled;
+    }
+
+    /**
+     * Returns true if the search finished within its time budget, so the solution is a valid shortest path.
+     *
+     * @return true if the search finished within its time budget.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
 }
@@ -0,0 +1,52 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically-increasing count backed by lock-free striped cells. Concurrent writers update different cells, so
+ * increments do not contend on a single memory location and never allocate once the cells exist.
+ *
+ * @see MetricsRegistry
+ */
+public class Counter {
+    /**
+     * Striped cells whose sum is the current count.
+     */
+    private final LongAdder cells;
+
+    /**
+     * Constructs a counter starting at zero.
+     */
+    public Counter() {
+        this.cells = new LongAdder();
+    }
+
+    /**
+     * Adds one to this counter.
+     */
+    public void increment() {
+        cells.increment();
+    }
+
+    /**
+     * Adds the given non-negative amount to this counter.
+     *
+     * @param amount the amount to add.
+     * @throws IllegalArgumentException if the amount is negative.
+     */
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Counters cannot decrease: " + amount);
+        }
+        cells.add(amount);
+    }
+
+    /**
+     * Returns the current count.
+     *
+     * @return the current count.
+     */
+    public long count() {
+        return cells.sum();
+    }
+}
@@ -0,0 +1,172 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram of non-negative {@code long} values such as latencies in nanoseconds. Values below
+ * 2<sup>{@value #PRECISION_BITS}</sup> have their own bucket; above that, each power of two is split into
+ * 2<sup>{@value #PRECISION_BITS} - 1</sup> equal-width buckets so every recorded value is within 1/16 (about 6%) of
+ * its bucket bounds. Bucket counts are striped across threads and recording never allocates.
+ *
+ * @see MetricsRegistry
+ */
+public class Histogram {
+    /**
+     * Number of significant bits kept for each value.
+     */
+    private static final int PRECISION_BITS = 5;
+    /**
+     * Number of linear sub-buckets in each power of two.
+     */
+    private static final int HALF = 1 << (PRECISION_BITS - 1);
+    /**
+     * Total number of buckets needed to cover every non-negative {@code long}.
+     */
+    private static final int BUCKETS = HALF * (Long.SIZE - 1 - PRECISION_BITS) + 2 * HALF;
+    /**
+     * Bit mask selecting a stripe from a thread id.
+     */
+    private static final int STRIPE_MASK = stripes() - 1;
+    /**
+     * Bucket counts for all stripes, laid out stripe-by-stripe.
+     */
+    private final AtomicLongArray counts;
+    private final LongAdder total;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+    /**
+     * Factor converting recorded values into exported units, e.g. {@code 1e-9} for nanoseconds to seconds.
+     */
+    private final double scale;
+
+    /**
+     * Constructs an empty histogram whose values are reported with the given scale factor.
+     *
+     * @param scale factor converting recorded values into exported units.
+     */
+    public Histogram(double scale) {
+        this.counts = new AtomicLongArray((STRIPE_MASK + 1) * BUCKETS);
+        this.total = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+        this.scale = scale;
+    }
+
+    /**
+     * Records a single value. Negative values are recorded as zero.
+     *
+     * @param value the value to record.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int stripe = (int) Thread.currentThread().getId() & STRIPE_MASK;
+        counts.incrementAndGet(stripe * BUCKETS + bucketOf(value));
+        total.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records the time elapsed since the given {@link System#nanoTime()} reading.
+     *
+     * @param startNanos a value previously returned by {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values.
+     */
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the sum of all recorded values in exported units.
+     *
+     * @return the sum of all recorded values in exported units.
+     */
+    public double sum() {
+        return sum.sum() * scale;
+    }
+
+    /**
+     * Returns the largest recorded value in exported units.
+     *
+     * @return the largest recorded value in exported units.
+     */
+    public double max() {
+        return max.get() * scale;
+    }
+
+    /**
+     * Returns an estimate of each of the given quantiles in exported units. Each estimate is the upper bound of the
+     * bucket containing the quantile, so it never understates the true value by more than the bucket width.
+     *
+     * @param quantiles the quantiles to estimate, each between 0 and 1, in increasing order.
+     * @return the estimated values for each quantile.
+     */
+    public double[] quantiles(double... quantiles) {
+        long[] merged = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < counts.length(); i += 1) {
+            long c = counts.get(i);
+            merged[i % BUCKETS] += c;
+            n += c;
+        }
+        long highest = max.get();
+        double[] result = new double[quantiles.length];
+        int bucket = 0;
+        long seen = merged[0];
+        for (int q = 0; q < quantiles.length; q += 1) {
+            if (n == 0) {
+                continue;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantiles[q] * n));
+            while (seen < rank && bucket < BUCKETS - 1) {
+                bucket += 1;
+                seen += merged[bucket];
+            }
+            result[q] = Math.min(upperBound(bucket), highest) * scale;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bucket index for the given non-negative value.
+     */
+    static int bucketOf(long value) {
+        if (value < 2 * HALF) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+        return HALF * shift + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the largest value that maps to the given bucket index.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < 2 * HALF) {
+            return bucket;
+        }
+        int shift = bucket / HALF - 1;
+        long sub = bucket - (long) HALF * shift;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns the number of stripes: the smallest power of two at least the number of available processors.
+     */
+    private static int stripes() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return Integer.highestOneBit(Math.max(1, processors - 1)) << 1;
+    }
+}
@@ -0,0 +1,183 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Named collection of {@link Counter} and {@link Histogram} metrics that can be exported in the
+ * <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">Prometheus text format</a>. Metrics are
+ * registered once at startup and then updated directly by the instrumented code, so recording never touches the
+ * registry. Histograms are exported as summaries with their median and tail quantiles.
+ *
+ * @see Counter
+ * @see Histogram
+ */
+public class MetricsRegistry {
+    /**
+     * Quantiles reported for each histogram.
+     */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    /**
+     * Scale factor for histograms of nanosecond durations reported in seconds.
+     */
+    private static final double NANOS_TO_SECONDS = 1e-9;
+    /**
+     * {@link Map} of metric names to the family of metrics sharing that name, in registration order.
+     */
+    private final Map<String, Family> families;
+
+    /**
+     * Constructs an empty registry.
+     */
+    public MetricsRegistry() {
+        this.families = new LinkedHashMap<>();
+    }
+
+    /**
+     * Registers and returns a new counter.
+     *
+     * @param name   the metric name, conventionally ending in {@code _total}.
+     * @param help   a description of the metric.
+     * @param labels label pairs such as {@code "endpoint", "/map"}.
+     * @return the new counter.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        Counter counter = new Counter();
+        register(name, help, "counter", labels, counter);
+        return counter;
+    }
+
+    /**
+     * Registers and returns a new histogram of nanosecond durations reported in seconds.
+     *
+     * @param name   the metric name, conventionally ending in {@code _seconds}.
+     * @param help   a description of the metric.
+     * @param labels label pairs such as {@code "endpoint", "/map"}.
+     * @return the new histogram.
+     */
+    public Histogram timer(String name, String help, String... labels) {
+        Histogram histogram = new Histogram(NANOS_TO_SECONDS);
+        register(name, help, "summary", labels, histogram);
+        return histogram;
+    }
+
+    /**
+     * Registers and returns a new histogram of unscaled values such as sizes or counts.
+     *
+     * @param name   the metric name.
+     * @param help   a description of the metric.
+     * @param labels label pairs such as {@code "endpoint", "/map"}.
+     * @return the new histogram.
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        Histogram histogram = new Histogram(1);
+        register(name, help, "summary", labels, histogram);
+        return histogram;
+    }
+
+    /**
+     * Returns the current value of every registered metric in the Prometheus text format.
+     *
+     * @return the current value of every registered metric in the Prometheus text format.
+     */
+    public synchronized String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (int i = 0; i < family.metrics.size(); i += 1) {
+                String labels = family.labels.get(i);
+                Object metric = family.metrics.get(i);
+                if (metric instanceof Counter) {
+                    sample(out, name, labels, null, ((Counter) metric).count());
+                } else {
+                    Histogram histogram = (Histogram) metric;
+                    double[] values = histogram.quantiles(QUANTILES);
+                    for (int q = 0; q < QUANTILES.length; q += 1) {
+                        String quantile = "quantile=\"" + QUANTILES[q] + '"';
+                        sample(out, name, labels, quantile, values[q]);
+                    }
+                    sample(out, name + "_sum", labels, null, histogram.sum());
+                    sample(out, name + "_count", labels, null, histogram.count());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Adds the metric to the family with the given name, creating the family if necessary.
+     *
+     * @throws IllegalArgumentException if the name is already used by a different type or the same labels.
+     */
+    private synchronized void register(String name, String help, String type, String[] labels, Object metric) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name-value pairs");
+        }
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        Family family = families.computeIfAbsent(name, k -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        } else if (family.labels.contains(rendered.toString())) {
+            throw new IllegalArgumentException(name + "{" + rendered + "} is already registered");
+        }
+        family.labels.add(rendered.toString());
+        family.metrics.add(metric);
+    }
+
+    /**
+     * Appends a single sample line combining the metric labels with an optional extra label.
+     */
+    private static void sample(StringBuilder out, String name, String labels, String extra, double value) {
+        out.append(name);
+        if (!labels.isEmpty() || extra != null) {
+            out.append('{').append(labels);
+            if (extra != null) {
+                out.append(labels.isEmpty() ? "" : ",").append(extra);
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(String.format(Locale.ROOT, "%.9g", value));
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Escapes a label value for the Prometheus text format.
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Metrics of the same type sharing a name, distinguished by their labels.
+     */
+    private static class Family {
+        private final String help;
+        private final String type;
+        private final List<String> labels;
+        private final List<Object> metrics;
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+            this.labels = new ArrayList<>();
+            this.metrics = new ArrayList<>();
+        }
+    }
+}
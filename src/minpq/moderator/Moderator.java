@@ -2,6 +2,7 @@ package minpq.moderator;
 
 import minpq.DoubleMapMinPQ;
 import minpq.ExtrinsicMinPQ;
+import tsv.TsvReader;
 
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -19,12 +20,12 @@ class Moderator {
     private static final String PATH = "data/toxic.tsv.gz";
 
     public static void main(String[] args) throws IOException {
-        Scanner scanner = new Scanner(new GZIPInputStream(new FileInputStream(PATH)));
-        scanner.nextLine(); // Skip header
+        TsvReader input = new TsvReader(new GZIPInputStream(new FileInputStream(PATH)));
+        input.next(); // Skip header
 
         ExtrinsicMinPQ<String> pq = new DoubleMapMinPQ<>();
         Random random = new Random();
-        addComments(pq, scanner, random.nextInt(100));
+        addComments(pq, input, random.nextInt(100));
         Scanner stdin = new Scanner(System.in);
         while (!pq.isEmpty()) {
             System.out.println();
@@ -47,25 +48,25 @@ class Moderator {
                 }
             }
             if (random.nextBoolean()) {
-                addComments(pq, scanner, random.nextInt(4));
+                addComments(pq, input, random.nextInt(4));
             }
         }
     }
 
     /**
-     * Adds up to <i>N</i> comments from the scanner to the priority queue with negated weights.
+     * Adds up to <i>N</i> comments from the input to the priority queue with negated weights.
      *
-     * @param pq      the destination priority queue.
-     * @param scanner the input scanner.
-     * @param n       the number of comments to read from the scanner.
+     * @param pq    the destination priority queue.
+     * @param input the input reader.
+     * @param n     the number of comments to read from the input.
+     * @throws IOException if an I/O error occurs.
      */
-    private static void addComments(ExtrinsicMinPQ<String> pq, Scanner scanner, int n) {
+    private static void addComments(ExtrinsicMinPQ<String> pq, TsvReader input, int n) throws IOException {
         int i = 0;
-        for (; i < n && scanner.hasNextLine(); i += 1) {
-            Scanner line = new Scanner(scanner.nextLine()).useDelimiter("\t");
-            double toxicity = line.nextDouble();
+        for (; i < n && input.next(); i += 1) {
+            double toxicity = input.doubleColumn(0);
             // Replace all but the first letter in each word.
-            String comment = line.next().replaceAll("\\B[a-zA-Z]", "*");
+            String comment = input.column(1).toString().replaceAll("\\B[a-zA-Z]", "*");
             // Prioritize most toxic content first by negating the weight.
             pq.add(comment, -toxicity);
         }
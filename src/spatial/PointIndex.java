@@ -0,0 +1,309 @@
+package spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Static 2-d tree over items located by longitude and latitude. Supports bounding-box range queries and k-nearest
+ * queries, both optionally restricted to items matching a filter. Nearest-neighbor distances use the equirectangular
+ * approximation around the query point, which preserves the distance order of nearby points at city scale.
+ * <p>
+ * The tree is stored implicitly in parallel arrays: the median of each range {@code [lo, hi)} is at its midpoint,
+ * with smaller keys to its left and larger keys to its right, alternating between longitude and latitude.
+ *
+ * @param <T> the type of items in this index.
+ */
+public class PointIndex<T> {
+    private final List<T> items;
+    private final double[] lons;
+    private final double[] lats;
+
+    /**
+     * Constructs an index over the given items.
+     *
+     * @param items the items to index.
+     * @param lon   function returning the longitude of each item.
+     * @param lat   function returning the latitude of each item.
+     */
+    public PointIndex(Collection<? extends T> items, ToDoubleFunction<? super T> lon, ToDoubleFunction<? super T> lat) {
+        this.items = new ArrayList<>(items);
+        this.lons = new double[items.size()];
+        this.lats = new double[items.size()];
+        for (int i = 0; i < this.items.size(); i += 1) {
+            lons[i] = lon.applyAsDouble(this.items.get(i));
+            lats[i] = lat.applyAsDouble(this.items.get(i));
+        }
+        build(0, this.items.size(), true);
+    }
+
+    /**
+     * Returns the number of items in this index.
+     *
+     * @return the number of items in this index.
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Returns all items inside the given bounding box (inclusive) that match the filter.
+     *
+     * @param minLon the western edge of the box.
+     * @param minLat the southern edge of the box.
+     * @param maxLon the eastern edge of the box.
+     * @param maxLat the northern edge of the box.
+     * @param filter predicate that items must satisfy.
+     * @return a list of the matching items in no particular order.
+     */
+    public List<T> range(double minLon, double minLat, double maxLon, double maxLat, Predicate<? super T> filter) {
+        List<T> result = new ArrayList<>();
+        range(0, items.size(), true, minLon, minLat, maxLon, maxLat, filter, result);
+        return result;
+    }
+
+    /**
+     * Returns up to k items closest to the given location that match the filter.
+     *
+     * @param lon    the longitude of the query location.
+     * @param lat    the latitude of the query location.
+     * @param k      the maximum number of items to return.
+     * @param filter predicate that items must satisfy.
+     * @return a list of up to k matching items, nearest first.
+     */
+    public List<T> nearest(double lon, double lat, int k, Predicate<? super T> filter) {
+        double inf = Double.POSITIVE_INFINITY;
+        return nearest(lon, lat, k, -inf, -inf, inf, inf, filter);
+    }
+
+    /**
+     * Returns up to k items inside the given bounding box (inclusive) closest to the given location that match the
+     * filter. Subtrees outside the box are never visited, so small boxes are fast even if few items match.
+     *
+     * @param lon    the longitude of the query location.
+     * @param lat    the latitude of the query location.
+     * @param k      the maximum number of items to return.
+     * @param minLon the western edge of the box.
+     * @param minLat the southern edge of the box.
+     * @param maxLon the eastern edge of the box.
+     * @param maxLat the northern edge of the box.
+     * @param filter predicate that items must satisfy.
+     * @return a list of up to k matching items, nearest first.
+     */
+    public List<T> nearest(double lon, double lat, int k, double minLon, double minLat, double maxLon, double maxLat,
+                           Predicate<? super T> filter) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        Nearest search = new Nearest(lon, lat, k, minLon, minLat, maxLon, maxLat, filter);
+        search.visit(0, items.size(), true);
+        return search.result();
+    }
+
+    /**
+     * Arranges the range {@code [lo, hi)} into a 2-d tree split on longitude if {@code byLon} or latitude otherwise.
+     */
+    private void build(int lo, int hi, boolean byLon) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, byLon ? lons : lats);
+        build(lo, mid, !byLon);
+        build(mid + 1, hi, !byLon);
+    }
+
+    /**
+     * Partially sorts the inclusive range {@code [lo, hi]} by the given keys so that index k holds the k-th smallest
+     * key, smaller keys are before it and larger keys are after it.
+     */
+    private void select(int lo, int hi, int k, double[] keys) {
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i += 1;
+                }
+                while (keys[j] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i += 1;
+                    j -= 1;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Swaps the items and coordinates at the two indices.
+     */
+    private void swap(int i, int j) {
+        T item = items.get(i);
+        items.set(i, items.get(j));
+        items.set(j, item);
+        double lon = lons[i];
+        lons[i] = lons[j];
+        lons[j] = lon;
+        double lat = lats[i];
+        lats[i] = lats[j];
+        lats[j] = lat;
+    }
+
+    /**
+     * Adds the matching items in the subtree for the range {@code [lo, hi)} to the result.
+     */
+    private void range(int lo, int hi, boolean byLon, double minLon, double minLat, double maxLon, double maxLat,
+                       Predicate<? super T> filter, List<T> result) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (minLon <= lons[mid] && lons[mid] <= maxLon && minLat <= lats[mid] && lats[mid] <= maxLat
+                && filter.test(items.get(mid))) {
+            result.add(items.get(mid));
+        }
+        double key = byLon ? lons[mid] : lats[mid];
+        if ((byLon ? minLon : minLat) <= key) {
+            range(lo, mid, !byLon, minLon, minLat, maxLon, maxLat, filter, result);
+        }
+        if (key <= (byLon ? maxLon : maxLat)) {
+            range(mid + 1, hi, !byLon, minLon, minLat, maxLon, maxLat, filter, result);
+        }
+    }
+
+    /**
+     * Depth-first k-nearest search keeping the best candidates so far in a bounded max-heap.
+     */
+    private class Nearest {
+        private final double lon;
+        private final double lat;
+        /**
+         * Scale applied to longitude differences so that they are comparable to latitude differences.
+         */
+        private final double lonScale;
+        private final double minLon;
+        private final double minLat;
+        private final double maxLon;
+        private final double maxLat;
+        private final Predicate<? super T> filter;
+        private final int[] heap;
+        private final double[] distances;
+        private int size;
+
+        Nearest(double lon, double lat, int k, double minLon, double minLat, double maxLon, double maxLat,
+                Predicate<? super T> filter) {
+            this.lon = lon;
+            this.lat = lat;
+            this.lonScale = Math.cos(Math.toRadians(lat));
+            this.minLon = minLon;
+            this.minLat = minLat;
+            this.maxLon = maxLon;
+            this.maxLat = maxLat;
+            this.filter = filter;
+            this.heap = new int[Math.min(k, items.size())];
+            this.distances = new double[heap.length];
+            this.size = 0;
+        }
+
+        /**
+         * Searches the subtree for the range {@code [lo, hi)}, visiting the side containing the query first.
+         */
+        void visit(int lo, int hi, boolean byLon) {
+            if (lo >= hi || heap.length == 0) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            double dLon = (lon - lons[mid]) * lonScale;
+            double dLat = lat - lats[mid];
+            double distance = dLon * dLon + dLat * dLat;
+            if ((size < heap.length || distance < distances[0])
+                    && minLon <= lons[mid] && lons[mid] <= maxLon && minLat <= lats[mid] && lats[mid] <= maxLat
+                    && filter.test(items.get(mid))) {
+                offer(mid, distance);
+            }
+            double key = byLon ? lons[mid] : lats[mid];
+            boolean hasLeft = (byLon ? minLon : minLat) <= key;
+            boolean hasRight = key <= (byLon ? maxLon : maxLat);
+            double split = byLon ? dLon : dLat;
+            if (split < 0) {
+                if (hasLeft) {
+                    visit(lo, mid, !byLon);
+                }
+                if (hasRight && (size < heap.length || split * split < distances[0])) {
+                    visit(mid + 1, hi, !byLon);
+                }
+            } else {
+                if (hasRight) {
+                    visit(mid + 1, hi, !byLon);
+                }
+                if (hasLeft && (size < heap.length || split * split < distances[0])) {
+                    visit(lo, mid, !byLon);
+                }
+            }
+        }
+
+        /**
+         * Adds the candidate, replacing the farthest candidate if the heap is full.
+         */
+        private void offer(int index, double distance) {
+            int i;
+            if (size < heap.length) {
+                i = size;
+                size += 1;
+                // Swim the new candidate up toward the root.
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    heap[i] = heap[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+            } else {
+                i = 0;
+                // Sink the new candidate down from the root.
+                while (2 * i + 1 < size) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && distances[child + 1] > distances[child]) {
+                        child += 1;
+                    }
+                    if (distances[child] <= distance) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+            }
+            heap[i] = index;
+            distances[i] = distance;
+        }
+
+        /**
+         * Returns the candidates in order of increasing distance.
+         */
+        List<T> result() {
+            List<T> result = new ArrayList<>(size);
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i += 1) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+            for (int i : order) {
+                result.add(items.get(heap[i]));
+            }
+            return result;
+        }
+    }
+}
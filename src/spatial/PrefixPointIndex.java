@@ -0,0 +1,257 @@
+package spatial;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Static index over items located by longitude and latitude and named by a key, answering the top k items whose keys
+ * start with a prefix ranked by a blend of each item's own cost and its distance to a query point. Distances use the
+ * same equirectangular approximation as {@link PointIndex}.
+ * <p>
+ * Items are sorted by key, so the items matching a prefix are a contiguous range. A segment tree over the sorted items
+ * stores, for each range, the bounding box of its items and the lowest cost among them. Both give a lower bound on the
+ * blended score of any item in a range, so a best-first search that always expands the range with the lowest bound
+ * returns items in order of score and never scores ranges that cannot reach the top k.
+ *
+ * @param <T> the type of items in this index.
+ * @see PointIndex
+ */
+public class PrefixPointIndex<T> {
+    private final List<T> items;
+    private final String[] keys;
+    private final double[] lons;
+    private final double[] lats;
+    private final double[] costs;
+    /**
+     * Segment tree of the lowest cost and the bounding box of the items in each range. The root at index 1 covers all
+     * items, and the children of node i at 2i and 2i + 1 split its range at the midpoint.
+     */
+    private final double[] minCosts;
+    private final double[] minLons;
+    private final double[] minLats;
+    private final double[] maxLons;
+    private final double[] maxLats;
+
+    /**
+     * Constructs an index over the given items.
+     *
+     * @param items the items to index.
+     * @param key   function returning the key of each item, against which prefixes are matched.
+     * @param lon   function returning the longitude of each item.
+     * @param lat   function returning the latitude of each item.
+     * @param cost  function returning the cost of each item, where items with lower cost rank first.
+     */
+    public PrefixPointIndex(Collection<? extends T> items, Function<? super T, String> key,
+                            ToDoubleFunction<? super T> lon, ToDoubleFunction<? super T> lat,
+                            ToDoubleFunction<? super T> cost) {
+        List<T> sorted = new ArrayList<>(items);
+        Map<T, String> keyOf = new IdentityHashMap<>();
+        for (T item : sorted) {
+            keyOf.put(item, key.apply(item));
+        }
+        sorted.sort(Comparator.comparing(keyOf::get));
+        int n = sorted.size();
+        this.items = sorted;
+        this.keys = new String[n];
+        this.lons = new double[n];
+        this.lats = new double[n];
+        this.costs = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            T item = sorted.get(i);
+            keys[i] = keyOf.get(item);
+            lons[i] = lon.applyAsDouble(item);
+            lats[i] = lat.applyAsDouble(item);
+            costs[i] = cost.applyAsDouble(item);
+        }
+        int nodes = 2 * Integer.highestOneBit(Math.max(1, 2 * n - 1));
+        this.minCosts = new double[nodes];
+        this.minLons = new double[nodes];
+        this.minLats = new double[nodes];
+        this.maxLons = new double[nodes];
+        this.maxLats = new double[nodes];
+        if (n > 0) {
+            build(1, 0, n);
+        }
+    }
+
+    /**
+     * Returns the number of items in this index.
+     *
+     * @return the number of items in this index.
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Returns up to k items whose keys start with the prefix and that match the filter, in ascending order of score.
+     * The score of an item is its cost plus the distance cost times its distance in degrees of latitude from the query
+     * location. The filter is tested on candidates in ascending order of score, so it may keep state such as the
+     * names seen so far.
+     *
+     * @param prefix       the prefix that keys must start with.
+     * @param lon          the longitude of the query location.
+     * @param lat          the latitude of the query location.
+     * @param distanceCost the cost per degree of latitude from the query location.
+     * @param k            the maximum number of items to return.
+     * @param filter       predicate that items must satisfy.
+     * @return a list of up to k matching items, lowest score first.
+     */
+    public List<T> topMatches(CharSequence prefix, double lon, double lat, double distanceCost, int k,
+                              Predicate<? super T> filter) {
+        List<T> result = new ArrayList<>();
+        if (k <= 0 || prefix == null || prefix.length() == 0 || items.isEmpty()) {
+            return result;
+        }
+        String key = prefix.toString();
+        int start = start(key);
+        int end = end(key, start);
+        Search search = new Search(lon, lat, distanceCost);
+        search.cover(1, 0, items.size(), start, end);
+        while (result.size() < k && !search.ranges.isEmpty()) {
+            Range range = search.ranges.remove();
+            if (range.hi - range.lo == 1) {
+                T item = items.get(range.lo);
+                if (filter.test(item)) {
+                    result.add(item);
+                }
+            } else {
+                int mid = (range.lo + range.hi) >>> 1;
+                search.offer(2 * range.node, range.lo, mid);
+                search.offer(2 * range.node + 1, mid, range.hi);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the lowest cost and bounding box of the node for the range {@code [lo, hi)} and its descendants.
+     */
+    private void build(int node, int lo, int hi) {
+        if (hi - lo == 1) {
+            minCosts[node] = costs[lo];
+            minLons[node] = lons[lo];
+            minLats[node] = lats[lo];
+            maxLons[node] = lons[lo];
+            maxLats[node] = lats[lo];
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int left = 2 * node;
+        int right = left + 1;
+        build(left, lo, mid);
+        build(right, mid, hi);
+        minCosts[node] = Math.min(minCosts[left], minCosts[right]);
+        minLons[node] = Math.min(minLons[left], minLons[right]);
+        minLats[node] = Math.min(minLats[left], minLats[right]);
+        maxLons[node] = Math.max(maxLons[left], maxLons[right]);
+        maxLats[node] = Math.max(maxLats[left], maxLats[right]);
+    }
+
+    /**
+     * Returns the index of the first key that is greater than or equal to the prefix.
+     */
+    private int start(String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index after the last key that starts with the prefix, given the index of the first possible match.
+     */
+    private int end(String prefix, int start) {
+        int low = start;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A node of the segment tree for the range {@code [lo, hi)} and the lowest score of any item in it.
+     */
+    private static class Range {
+        final int node;
+        final int lo;
+        final int hi;
+        final double bound;
+
+        Range(int node, int lo, int hi, double bound) {
+            this.node = node;
+            this.lo = lo;
+            this.hi = hi;
+            this.bound = bound;
+        }
+    }
+
+    /**
+     * Best-first search over ranges of matching items in ascending order of their lower bounds.
+     */
+    private class Search {
+        private final double lon;
+        private final double lat;
+        /**
+         * Scale applied to longitude differences so that they are comparable to latitude differences.
+         */
+        private final double lonScale;
+        private final double distanceCost;
+        /**
+         * Ranges waiting to be expanded, lowest bound first and then in key order.
+         */
+        final PriorityQueue<Range> ranges;
+
+        Search(double lon, double lat, double distanceCost) {
+            this.lon = lon;
+            this.lat = lat;
+            this.lonScale = Math.cos(Math.toRadians(lat));
+            this.distanceCost = distanceCost;
+            this.ranges = new PriorityQueue<>(
+                    Comparator.<Range>comparingDouble(range -> range.bound).thenComparingInt(range -> range.lo)
+            );
+        }
+
+        /**
+         * Offers the fewest nodes in the subtree for the range {@code [lo, hi)} that exactly cover {@code [start,
+         * end)}.
+         */
+        void cover(int node, int lo, int hi, int start, int end) {
+            if (hi <= start || end <= lo) {
+                return;
+            } else if (start <= lo && hi <= end) {
+                offer(node, lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            cover(2 * node, lo, mid, start, end);
+            cover(2 * node + 1, mid, hi, start, end);
+        }
+
+        /**
+         * Adds the node for the range {@code [lo, hi)} with the lowest possible score of its items: its lowest cost
+         * plus the distance cost of the nearest point in its bounding box. The bound is exact for a single item.
+         */
+        void offer(int node, int lo, int hi) {
+            double dLon = Math.max(0, Math.max(minLons[node] - lon, lon - maxLons[node])) * lonScale;
+            double dLat = Math.max(0, Math.max(minLats[node] - lat, lat - maxLats[node]));
+            double bound = minCosts[node] + distanceCost * Math.sqrt(dLon * dLon + dLat * dLat);
+            ranges.add(new Range(node, lo, hi, bound));
+        }
+    }
+}
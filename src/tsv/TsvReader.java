@@ -0,0 +1,438 @@
+package tsv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reader for UTF-8 tab-separated values that parses lines directly from a large byte buffer. Each call to
+ * {@link #next()} finds the tabs and newline of the next line by scanning bytes, and columns are returned as views of
+ * the buffer or parsed as numbers in place, so reading a line does not create a {@link String} per line or field.
+ * <p>
+ * Optionally, a background thread reads ahead from the input while lines are parsed, so that decompressing a gzipped
+ * file overlaps with parsing it.
+ */
+public class TsvReader implements Closeable {
+    /**
+     * Initial size of the line buffer, which grows to fit the longest line.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /**
+     * Size of each chunk read ahead by the background thread, and number of chunks read ahead.
+     */
+    private static final int CHUNK_SIZE = 1 << 18;
+    private static final int CHUNKS = 4;
+    /**
+     * Powers of ten that are exactly representable as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private final InputStream input;
+    /**
+     * Bytes read from the input, of which those from {@link #position} to {@link #limit} have not been parsed.
+     */
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    /**
+     * Start and end of each column of the current line in the buffer, and the number of columns.
+     */
+    private int[] starts;
+    private int[] ends;
+    private int columns;
+
+    /**
+     * Constructs a reader for the input, reading on the calling thread.
+     *
+     * @param input the tab-separated values, such as a {@link java.util.zip.GZIPInputStream}.
+     */
+    public TsvReader(InputStream input) {
+        this(input, false);
+    }
+
+    /**
+     * Constructs a reader for the input, optionally reading ahead on a background thread.
+     *
+     * @param input     the tab-separated values, such as a {@link java.util.zip.GZIPInputStream}.
+     * @param readAhead whether to read from the input on a background thread while lines are parsed.
+     */
+    public TsvReader(InputStream input, boolean readAhead) {
+        this.input = readAhead ? new ReadAheadInputStream(input) : input;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.position = 0;
+        this.limit = 0;
+        this.eof = false;
+        this.starts = new int[8];
+        this.ends = new int[8];
+        this.columns = 0;
+    }
+
+    /**
+     * Advances to the next line, invalidating the columns returned for the previous line. A final line without a
+     * newline is still read, and a carriage return before a newline is ignored.
+     *
+     * @return true if there is another line, or false at the end of the input.
+     * @throws IOException if an I/O error occurs.
+     */
+    public boolean next() throws IOException {
+        columns = 0;
+        int i = position;
+        while (true) {
+            while (i < limit && buffer[i] != '\n') {
+                i += 1;
+            }
+            if (i < limit || eof) {
+                break;
+            }
+            // Move the partial line to the front of the buffer, growing the buffer if the line fills it.
+            int scanned = i - position;
+            fill();
+            i = position + scanned;
+        }
+        if (i == position && i == limit) {
+            return false;
+        }
+        int end = i > position && buffer[i - 1] == '\r' ? i - 1 : i;
+        int start = position;
+        for (int j = position; j < end; j += 1) {
+            if (buffer[j] == '\t') {
+                add(start, j);
+                start = j + 1;
+            }
+        }
+        add(start, end);
+        position = Math.min(i + 1, limit);
+        return true;
+    }
+
+    /**
+     * Returns the number of columns in the current line.
+     *
+     * @return the number of columns in the current line.
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * Returns the given column of the current line. Columns that are entirely ASCII are views of the buffer that are
+     * only valid until the next call to {@link #next()}, so use {@link CharSequence#toString()} to keep them.
+     *
+     * @param column the index of the column.
+     * @return the text of the column.
+     * @throws IndexOutOfBoundsException if the current line does not have the column.
+     */
+    public CharSequence column(int column) {
+        check(column);
+        int start = starts[column];
+        int end = ends[column];
+        for (int i = start; i < end; i += 1) {
+            if (buffer[i] < 0) {
+                return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+            }
+        }
+        return new Field(buffer, start, end);
+    }
+
+    /**
+     * Returns the given column of the current line parsed as a decimal integer.
+     *
+     * @param column the index of the column.
+     * @return the integer value of the column.
+     * @throws IndexOutOfBoundsException if the current line does not have the column.
+     * @throws NumberFormatException     if the column is not an integer.
+     */
+    public int intColumn(int column) {
+        check(column);
+        int start = starts[column];
+        int end = ends[column];
+        boolean negative = start < end && buffer[start] == '-';
+        int i = negative || (start < end && buffer[start] == '+') ? start + 1 : start;
+        if (i == end) {
+            throw new NumberFormatException("For input string: \"" + column(column) + "\"");
+        }
+        // Accumulate negatively, since the negative range is one larger than the positive range.
+        int result = 0;
+        for (; i < end; i += 1) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || result < (Integer.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("For input string: \"" + column(column) + "\"");
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative && result == Integer.MIN_VALUE) {
+            throw new NumberFormatException("For input string: \"" + column(column) + "\"");
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Returns the given column of the current line parsed as a double. Plain decimals with up to 15 significant digits
+     * are parsed in place, and other numbers with {@link Double#parseDouble(String)}.
+     *
+     * @param column the index of the column.
+     * @return the double value of the column.
+     * @throws IndexOutOfBoundsException if the current line does not have the column.
+     * @throws NumberFormatException     if the column is not a number.
+     */
+    public double doubleColumn(int column) {
+        check(column);
+        int start = starts[column];
+        int end = ends[column];
+        boolean negative = start < end && buffer[start] == '-';
+        int i = negative ? start + 1 : start;
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; i < end; i += 1) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa > 0) {
+                    digits += 1;
+                }
+                if (fraction >= 0) {
+                    fraction += 1;
+                }
+            } else if (b == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                break;
+            }
+        }
+        // Both the mantissa and the power of ten are exact, so a single division is correctly rounded.
+        int first = negative ? start + 1 : start;
+        if (i == end && digits <= 15 && end - first > (fraction >= 0 ? 1 : 0) && Math.max(fraction, 0) <= 22) {
+            double result = mantissa / POWERS_OF_TEN[Math.max(fraction, 0)];
+            return negative ? -result : result;
+        }
+        return Double.parseDouble(column(column).toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Records a column of the current line.
+     */
+    private void add(int start, int end) {
+        if (columns == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * columns);
+            ends = Arrays.copyOf(ends, 2 * columns);
+        }
+        starts[columns] = start;
+        ends[columns] = end;
+        columns += 1;
+    }
+
+    /**
+     * Throws an exception if the current line does not have the column.
+     */
+    private void check(int column) {
+        if (column < 0 || column >= columns) {
+            throw new IndexOutOfBoundsException("Column " + column + " of a line with " + columns + " columns");
+        }
+    }
+
+    /**
+     * Moves the unparsed bytes to the front of the buffer and reads more bytes after them, or sets {@link #eof}.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+        } else {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+        int n = input.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    /**
+     * View of the bytes of an ASCII column as characters.
+     */
+    private static class Field implements CharSequence {
+        private final byte[] bytes;
+        private final int start;
+        private final int end;
+
+        Field(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("index " + index + ", length " + (end - start));
+            }
+            return (char) bytes[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int begin, int end) {
+            if (begin < 0 || begin > end || end > length()) {
+                throw new IndexOutOfBoundsException("begin " + begin + ", end " + end + ", length " + length());
+            }
+            return new Field(bytes, start + begin, start + end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Input stream that reads chunks of another input stream on a background thread ahead of its reader. The background
+     * thread owns the other input stream and closes it when it stops, so the stream is never closed while being read.
+     */
+    private static class ReadAheadInputStream extends InputStream {
+        private final InputStream input;
+        /**
+         * Chunks read from the input, followed by an empty chunk at the end of the input, and chunks ready to be read
+         * into again.
+         */
+        private final BlockingQueue<Chunk> full;
+        private final BlockingQueue<Chunk> empty;
+        private final Thread reader;
+        /**
+         * The chunk being read from, or null if the end of the input has been reached.
+         */
+        private Chunk current;
+        private int position;
+        /**
+         * The exception thrown while reading from the input, if any.
+         */
+        private volatile IOException failure;
+        /**
+         * The exception thrown while closing the input, if any. Written by the background thread before it stops.
+         */
+        private volatile IOException closeFailure;
+
+        ReadAheadInputStream(InputStream input) {
+            this.input = input;
+            // Room for every chunk, including the one being read from.
+            this.full = new ArrayBlockingQueue<>(CHUNKS + 1);
+            this.empty = new ArrayBlockingQueue<>(CHUNKS + 1);
+            for (int i = 0; i < CHUNKS; i += 1) {
+                empty.add(new Chunk());
+            }
+            this.reader = new Thread(this::readAhead, "tsv-read-ahead");
+            this.reader.setDaemon(true);
+            this.reader.start();
+            this.current = new Chunk();
+            this.position = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (current != null && position == current.length) {
+                try {
+                    empty.put(current);
+                    current = full.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                position = 0;
+                if (current.length == 0) {
+                    current = null;
+                }
+            }
+            if (current == null) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return -1;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current.bytes, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Stop the background thread and wait for it to close the input after its current read.
+            reader.interrupt();
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            IOException e = closeFailure;
+            closeFailure = null;
+            if (e != null) {
+                throw e;
+            }
+        }
+
+        /**
+         * Reads chunks from the input until the end of the input, an error, or an interrupt, and then closes the input.
+         */
+        private void readAhead() {
+            try {
+                while (true) {
+                    Chunk chunk = empty.take();
+                    chunk.length = Math.max(input.readNBytes(chunk.bytes, 0, CHUNK_SIZE), 0);
+                    full.put(chunk);
+                    if (chunk.length == 0) {
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                full.offer(new Chunk());
+            } catch (InterruptedException e) {
+                // Closed by the reader.
+            } finally {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    closeFailure = e;
+                }
+            }
+        }
+
+        /**
+         * Buffer of bytes read from the input.
+         */
+        private static class Chunk {
+            final byte[] bytes = new byte[CHUNK_SIZE];
+            int length;
+        }
+    }
+}
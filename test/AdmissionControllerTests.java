@@ -0,0 +1,50 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link AdmissionController} class.
+ *
+ * @see AdmissionController
+ */
+public class AdmissionControllerTests {
+    @Test
+    void rejectsWhenQueueIsFull() throws InterruptedException {
+        AdmissionController admission = new AdmissionController(1, 0);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        assertEquals(AdmissionController.Admission.ADMITTED, admission.acquire(deadline));
+        assertEquals(AdmissionController.Admission.REJECTED, admission.acquire(deadline));
+        admission.release();
+        assertEquals(AdmissionController.Admission.ADMITTED, admission.acquire(deadline));
+    }
+
+    @Test
+    void admitsQueuedCallerBeforeLateCaller() throws InterruptedException {
+        for (int trial = 0; trial < 20; trial += 1) {
+            AdmissionController admission = new AdmissionController(1, 2);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            assertEquals(AdmissionController.Admission.ADMITTED, admission.acquire(deadline));
+            AtomicReference<AdmissionController.Admission> queued = new AtomicReference<>();
+            Thread waiter = new Thread(() -> {
+                try {
+                    queued.set(admission.acquire(deadline));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            waiter.start();
+            // Wait until the caller is parked in the queue for a permit.
+            while (waiter.getState() != Thread.State.TIMED_WAITING) {
+                Thread.onSpinWait();
+            }
+            admission.release();
+            // A late caller must not take the freed permit ahead of the queued caller.
+            assertEquals(AdmissionController.Admission.EXPIRED, admission.acquire(System.nanoTime()));
+            waiter.join();
+            assertEquals(AdmissionController.Admission.ADMITTED, queued.get());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package autocomplete;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link MappedAutocomplete} class.
+ *
+ * @see MappedAutocomplete
+ */
+public class MappedAutocompleteTests {
+    /**
+     * Terms and their weights.
+     */
+    private static final Map<String, Integer> TERMS = Map.of(
+            "sea", 1,
+            "seattle", 9,
+            "seaside", 4,
+            "seoul", 9,
+            "spokane", 6,
+            "tacoma", 7
+    );
+
+    /**
+     * Deletes the index file, or deletes it on exit if it is still memory-mapped, since Windows does not allow deleting
+     * a mapped file and a mapping is only released when its buffer is garbage collected.
+     */
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    @Test
+    void queriesWrittenIndex() throws IOException {
+        Path path = Files.createTempFile("autocomplete", ".idx");
+        try {
+            MappedAutocomplete.write(path, TERMS.keySet(), TERMS::get);
+            MappedAutocomplete autocomplete = MappedAutocomplete.open(path);
+            assertEquals(6, autocomplete.size());
+            assertEquals(List.of("sea", "seaside", "seattle"), autocomplete.allMatches("sea"));
+            assertEquals(List.of("sea", "seaside"), autocomplete.allMatches("sea", 2));
+            assertEquals(5, autocomplete.countMatches("s"));
+            assertEquals(0, autocomplete.countMatches("seat "));
+            assertEquals(List.of("seattle", "seaside", "sea"), autocomplete.topMatches("sea", 5));
+            // Seattle and Seoul have equal weights, so their order depends on the order of the map.
+            assertEquals("spokane", autocomplete.topMatches("s", 3).get(2));
+            assertThrows(UnsupportedOperationException.class, () -> autocomplete.addAll(List.of("olympia")));
+        } finally {
+            delete(path);
+        }
+    }
+
+    @Test
+    void breaksTiesByOrderAdded() throws IOException {
+        Path path = Files.createTempFile("autocomplete", ".idx");
+        try {
+            MappedAutocomplete.write(path, List.of("bb", "ba", "bc", "ba"), term -> 1);
+            MappedAutocomplete autocomplete = MappedAutocomplete.open(path);
+            assertEquals(3, autocomplete.size());
+            assertEquals(List.of("bb", "ba", "bc"), autocomplete.topMatches("b", 3));
+        } finally {
+            delete(path);
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path path = Files.createTempFile("autocomplete", ".idx");
+        try {
+            Files.writeString(path, "seattle\t9\n");
+            assertThrows(IOException.class, () -> MappedAutocomplete.open(path));
+        } finally {
+            delete(path);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package autocomplete;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link NormalizedAutocomplete} class.
+ *
+ * @see NormalizedAutocomplete
+ */
+public class NormalizedAutocompleteTests {
+    /**
+     * Place names and their weights, including names that differ only in case and punctuation.
+     */
+    private static final Map<String, Integer> PLACES = Map.of(
+            "St. Mark's Café", 5,
+            "St Marks Cafe", 3,
+            "Saint Mark", 4,
+            "SEATTLE CENTER", 9,
+            "Seattle-Tacoma Airport", 8,
+            "Seattle", 10,
+            "Zoë's Bakery", 1
+    );
+
+    /**
+     * Returns an instance containing the {@link #PLACES}.
+     */
+    private static NormalizedAutocomplete<TopKTernarySearchTreeAutocomplete> createAutocomplete() {
+        NormalizedAutocomplete<TopKTernarySearchTreeAutocomplete> autocomplete =
+                new NormalizedAutocomplete<>(new TopKTernarySearchTreeAutocomplete());
+        autocomplete.addAll(PLACES.keySet(), PLACES::get);
+        return autocomplete;
+    }
+
+    @Test
+    void fold() {
+        assertEquals("st marks cafe", NormalizedAutocomplete.fold("St. Mark's Café"));
+        assertEquals("seattle tacoma ", NormalizedAutocomplete.fold("  Seattle--Tacoma / "));
+        assertEquals("zoes", NormalizedAutocomplete.fold("ZOË'S"));
+        assertEquals("", NormalizedAutocomplete.fold("?!"));
+        assertEquals("", NormalizedAutocomplete.fold(null));
+    }
+
+    @Test
+    void allMatchesIgnoresCaseAndPunctuation() {
+        NormalizedAutocomplete<TopKTernarySearchTreeAutocomplete> autocomplete = createAutocomplete();
+        List<CharSequence> matches = autocomplete.allMatches("st. MARK");
+        assertEquals(2, matches.size());
+        assertTrue(matches.containsAll(List.of("St. Mark's Café", "St Marks Cafe")));
+        assertEquals(List.of("Zoë's Bakery"), autocomplete.allMatches("zoes"));
+        assertEquals(List.of(), autocomplete.allMatches("..."));
+    }
+
+    @Test
+    void topMatchesReturnsOriginalTermsByWeight() {
+        NormalizedAutocomplete<TopKTernarySearchTreeAutocomplete> autocomplete = createAutocomplete();
+        assertEquals(List.of("Seattle", "SEATTLE CENTER", "Seattle-Tacoma Airport"),
+                autocomplete.topMatches("seattle", 10));
+        assertEquals(List.of("Seattle", "SEATTLE CENTER"), autocomplete.topMatches("SEA", 2));
+        assertEquals(List.of("SEATTLE CENTER", "Seattle-Tacoma Airport"), autocomplete.topMatches("seattle ", 10));
+        assertEquals(List.of("St. Mark's Café", "Saint Mark", "St Marks Cafe"), autocomplete.topMatches("s", 10)
+                .subList(3, 6));
+    }
+}
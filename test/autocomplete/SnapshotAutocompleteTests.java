@@ -0,0 +1,111 @@
+package autocomplete;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SnapshotAutocomplete} class.
+ *
+ * @see SnapshotAutocomplete
+ */
+public class SnapshotAutocompleteTests {
+    @Test
+    void keepsTermsAndWeightsAcrossBatches() {
+        SnapshotAutocomplete<TopKTernarySearchTreeAutocomplete> autocomplete =
+                new SnapshotAutocomplete<>(TopKTernarySearchTreeAutocomplete::new);
+        autocomplete.addAll(List.of("seattle", "seaside"), term -> term.length());
+        TopKTernarySearchTreeAutocomplete first = autocomplete.snapshot();
+        autocomplete.addAll(List.of("sea", "seaside"), term -> 10);
+        assertEquals(List.of("seaside", "sea", "seattle"), autocomplete.topMatches("se", 3));
+        assertEquals(3, autocomplete.countMatches("sea"));
+        // Earlier snapshots are unchanged by later batches.
+        assertEquals(List.of("seattle", "seaside"), first.topMatches("se", 3));
+    }
+
+    @Test
+    void readsCompleteBatchesWhileAdding() throws InterruptedException {
+        SnapshotAutocomplete<TopKTernarySearchTreeAutocomplete> autocomplete =
+                new SnapshotAutocomplete<>(TopKTernarySearchTreeAutocomplete::new);
+        int batches = 50;
+        int batchSize = 100;
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            int previous = 0;
+            while (previous < batches * batchSize && failure.get() == null) {
+                int count = autocomplete.countMatches("term");
+                if (count % batchSize != 0 || count < previous) {
+                    failure.set("Read " + count + " terms after " + previous);
+                }
+                previous = count;
+            }
+        });
+        reader.start();
+        for (int batch = 0; batch < batches; batch += 1) {
+            List<String> terms = new ArrayList<>();
+            for (int i = 0; i < batchSize; i += 1) {
+                terms.add("term" + (batch * batchSize + i));
+            }
+            autocomplete.addAll(terms);
+        }
+        reader.join();
+        assertNull(failure.get());
+        assertEquals(batches * batchSize, autocomplete.countMatches("term"));
+    }
+
+    @Test
+    void readsNewSnapshotFromManyThreads() throws InterruptedException {
+        List<String> terms = new ArrayList<>();
+        Random random = new Random(373);
+        for (int i = 0; i < 50000; i += 1) {
+            terms.add("w" + random.nextInt(1000) + " x" + random.nextInt(100) + " y" + i);
+        }
+        List<String> prefixes = List.of("w1", "w12 x3", "x5 w9", "y4", "x1", "w99 y");
+        List<Supplier<WeightedAutocomplete>> factories = List.of(
+                TokenAutocomplete::new, TopKTernarySearchTreeAutocomplete::new
+        );
+        for (Supplier<WeightedAutocomplete> factory : factories) {
+            WeightedAutocomplete reference = factory.get();
+            reference.addAll(terms, term -> term.hashCode());
+            Map<String, List<CharSequence>> expected = new HashMap<>();
+            for (String prefix : prefixes) {
+                expected.put(prefix, reference.topMatches(prefix, 10));
+            }
+            for (int trial = 0; trial < 5; trial += 1) {
+                // Every reader starts on a snapshot that no thread has queried yet.
+                SnapshotAutocomplete<WeightedAutocomplete> autocomplete = new SnapshotAutocomplete<>(factory);
+                autocomplete.addAll(terms, term -> term.hashCode());
+                CountDownLatch start = new CountDownLatch(1);
+                AtomicReference<String> failure = new AtomicReference<>();
+                List<Thread> readers = new ArrayList<>();
+                for (int i = 0; i < 8; i += 1) {
+                    Thread reader = new Thread(() -> {
+                        try {
+                            start.await();
+                            for (String prefix : prefixes) {
+                                List<CharSequence> actual = autocomplete.topMatches(prefix, 10);
+                                if (!expected.get(prefix).equals(actual)) {
+                                    failure.set("Read " + actual + " for " + prefix);
+                                }
+                            }
+                        } catch (RuntimeException | InterruptedException e) {
+                            failure.set(e.toString());
+                        }
+                    });
+                    reader.start();
+                    readers.add(reader);
+                }
+                start.countDown();
+                for (Thread reader : readers) {
+                    reader.join();
+                }
+                assertNull(failure.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package autocomplete;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link TermArena} class.
+ *
+ * @see TermArena
+ */
+public class TermArenaTests {
+    @Test
+    void comparesInPlace() {
+        TermArena arena = new TermArena();
+        for (String term : List.of("", "sea", "seattle", "seoul", "spokane")) {
+            arena.add(term);
+        }
+        assertEquals(5, arena.size());
+        assertEquals(22, arena.characters());
+        assertEquals("seattle", arena.get(2));
+        assertEquals(0, arena.compare(0, ""));
+        assertTrue(arena.compare(1, "seattle") < 0);
+        assertTrue(arena.compare(3, "seattle") > 0);
+        assertTrue(arena.startsWith(2, "sea"));
+        assertFalse(arena.startsWith(1, "seat"));
+        assertEquals(1, arena.start("sea"));
+        assertEquals(3, arena.end("sea", 1));
+        assertEquals(5, arena.start("t"));
+    }
+
+    @Test
+    void copiesFromOtherArena() {
+        TermArena first = new TermArena();
+        first.add("tacoma");
+        TermArena second = new TermArena(1, 0);
+        second.add("x".repeat(100));
+        second.add(first, 0);
+        assertEquals("tacoma", second.get(1));
+        assertEquals(0, second.compare(1, first, 0));
+        assertTrue(second.compare(0, first, 0) > 0);
+    }
+}
@@ -0,0 +1,65 @@
+package autocomplete;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link TokenAutocomplete} class.
+ *
+ * @see TokenAutocomplete
+ */
+public class TokenAutocompleteTests {
+    /**
+     * Place names and their weights.
+     */
+    private static final Map<String, Integer> PLACES = Map.of(
+            "Pike Place Market", 9,
+            "Market Street", 5,
+            "Ballard Farmers Market", 7,
+            "Pike Street", 6,
+            "Pioneer Square", 8,
+            "Marketplace  Cafe", 1
+    );
+
+    /**
+     * Returns an instance containing the {@link #PLACES}.
+     */
+    private static TokenAutocomplete createAutocomplete() {
+        TokenAutocomplete autocomplete = new TokenAutocomplete();
+        autocomplete.addAll(PLACES.keySet(), PLACES::get);
+        return autocomplete;
+    }
+
+    @Test
+    void matchesAnyWordStart() {
+        TokenAutocomplete autocomplete = createAutocomplete();
+        assertEquals(List.of("Pike Place Market", "Ballard Farmers Market", "Market Street", "Marketplace  Cafe"),
+                autocomplete.topMatches("Market", 10));
+        assertEquals(List.of("Pike Place Market", "Ballard Farmers Market"), autocomplete.topMatches("Mark", 2));
+        assertEquals(List.of("Marketplace  Cafe"), autocomplete.topMatches("Caf", 10));
+        assertEquals(List.of(), autocomplete.topMatches("arket", 10));
+        assertEquals(List.of(), autocomplete.topMatches(" ", 10));
+    }
+
+    @Test
+    void intersectsWords() {
+        TokenAutocomplete autocomplete = createAutocomplete();
+        assertEquals(List.of("Pike Place Market"), autocomplete.topMatches("Market Pike", 10));
+        assertEquals(List.of("Pike Place Market", "Pike Street"), autocomplete.topMatches("Pike P", 10));
+        assertEquals(List.of("Pike Street", "Market Street"), autocomplete.topMatches("St", 10));
+        assertEquals(List.of("Market Street"), autocomplete.topMatches("Street Mar", 10));
+        assertEquals(List.of(), autocomplete.topMatches("Pike Square", 10));
+    }
+
+    @Test
+    void allMatchesInWeightOrder() {
+        TokenAutocomplete autocomplete = createAutocomplete();
+        assertEquals(List.of("Pike Place Market", "Pioneer Square", "Pike Street"), autocomplete.allMatches("Pi"));
+        autocomplete.addAll(List.of("Pike Street"), term -> 10);
+        assertEquals(List.of("Pike Street", "Pike Place Market", "Pioneer Square"), autocomplete.allMatches("Pi"));
+    }
+}
@@ -5,10 +5,12 @@ import autocomplete.TreeSetAutocomplete;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import tsv.TsvReader;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,7 +33,7 @@ public abstract class AutocompleteTests {
     /**
      * Associating each city name to the importance weight of that city.
      */
-    private final List<String> cities = new ArrayList<>(MAX_CITIES);
+    final List<String> cities = new ArrayList<>(MAX_CITIES);
     /**
      * Reference implementation of the {@link Autocomplete} interface for comparison.
      */
@@ -50,12 +52,12 @@ public abstract class AutocompleteTests {
 
     @BeforeAll
     void setup() throws IOException {
-        Scanner input = new Scanner(new GZIPInputStream(new FileInputStream(PATH)));
-        while (input.hasNextLine() && cities.size() < MAX_CITIES) {
-            Scanner line = new Scanner(input.nextLine()).useDelimiter("\t");
-            String city = line.next();
-            // int weight = line.nextInt();
-            cities.add(city);
+        try (TsvReader input = new TsvReader(new GZIPInputStream(new FileInputStream(PATH)))) {
+            while (cities.size() < MAX_CITIES && input.next()) {
+                String city = input.column(0).toString();
+                // int weight = input.intColumn(1);
+                cities.add(city);
+            }
         }
         reference.addAll(cities);
         testing.addAll(cities);
@@ -82,6 +84,30 @@ public abstract class AutocompleteTests {
         }
     }
 
+    @Test
+    void compareLimitedMatches() {
+        for (String prefix : List.of("Sea", "S", "San", "Z", "*Sea")) {
+            List<CharSequence> all = testing.allMatches(prefix);
+            for (int limit : new int[]{0, 1, 10, all.size() + 1}) {
+                List<CharSequence> expected = all.subList(0, Math.min(limit, all.size()));
+                assertEquals(expected, testing.allMatches(prefix, limit));
+                assertEquals(expected, testing.stream(prefix).limit(limit).collect(Collectors.toList()));
+            }
+            Iterator<CharSequence> matches = testing.matches(prefix);
+            for (CharSequence expected : all) {
+                assertEquals(expected, matches.next());
+            }
+            assertFalse(matches.hasNext());
+        }
+    }
+
+    @Test
+    void compareCountMatches() {
+        for (String prefix : List.of("Sea", "S", "San", "Z", "*Sea")) {
+            assertEquals(reference.allMatches(prefix).size(), testing.countMatches(prefix));
+        }
+    }
+
     /**
      * Asserts that the reference and testing implementations' {@code allMatches} methods produce
      * the same results ignoring order.
@@ -0,0 +1,32 @@
+package autocomplete.cities;
+
+import autocomplete.Autocomplete;
+import autocomplete.FiniteStateTransducerAutocomplete;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link FiniteStateTransducerAutocomplete} class.
+ *
+ * @see FiniteStateTransducerAutocomplete
+ */
+public class FiniteStateTransducerAutocompleteTests extends TopKTernarySearchTreeAutocompleteTests {
+    @Override
+    public Autocomplete createAutocomplete() {
+        return new FiniteStateTransducerAutocomplete();
+    }
+
+    @Test
+    void sharesPrefixesAndSuffixes() {
+        FiniteStateTransducerAutocomplete autocomplete = new FiniteStateTransducerAutocomplete();
+        autocomplete.addAll(List.of("tops", "tap", "top", "taps"));
+        // The start state, "t", then "ta" and "to" merged, "tap" and "top" merged, and "taps" and "tops" merged.
+        assertEquals(5, autocomplete.states());
+        assertEquals(4, autocomplete.size());
+        assertEquals(List.of("tap", "taps", "top", "tops"), autocomplete.allMatches("t"));
+        assertEquals(List.of("tops", "top"), autocomplete.topMatches("to", 5));
+    }
+}
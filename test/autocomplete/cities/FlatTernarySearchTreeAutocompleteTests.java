@@ -0,0 +1,33 @@
+package autocomplete.cities;
+
+import autocomplete.Autocomplete;
+import autocomplete.FlatTernarySearchTreeAutocomplete;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link FlatTernarySearchTreeAutocomplete} class.
+ *
+ * @see FlatTernarySearchTreeAutocomplete
+ */
+public class FlatTernarySearchTreeAutocompleteTests extends AutocompleteTests {
+    @Override
+    public Autocomplete createAutocomplete() {
+        return new FlatTernarySearchTreeAutocomplete();
+    }
+
+    @Test
+    void addsLongTerms() {
+        Autocomplete autocomplete = createAutocomplete();
+        String term = "ACGT".repeat(100000);
+        autocomplete.addAll(List.of(term, term.substring(1), term.substring(2)));
+        assertEquals(List.of(term), autocomplete.allMatches("ACGTACGT"));
+        assertEquals(List.of(term.substring(2)), autocomplete.allMatches("GT"));
+        assertEquals(1, autocomplete.countMatches("C"));
+        assertTrue(autocomplete.allMatches("").isEmpty());
+        assertEquals(0, autocomplete.countMatches(""));
+    }
+}
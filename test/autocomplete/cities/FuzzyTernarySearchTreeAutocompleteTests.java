@@ -0,0 +1,81 @@
+package autocomplete.cities;
+
+import autocomplete.Autocomplete;
+import autocomplete.FuzzyTernarySearchTreeAutocomplete;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link FuzzyTernarySearchTreeAutocomplete} class.
+ *
+ * @see FuzzyTernarySearchTreeAutocomplete
+ */
+public class FuzzyTernarySearchTreeAutocompleteTests extends TopKTernarySearchTreeAutocompleteTests {
+    @Override
+    public Autocomplete createAutocomplete() {
+        return new FuzzyTernarySearchTreeAutocomplete();
+    }
+
+    @Test
+    void compareFuzzyMatches() {
+        FuzzyTernarySearchTreeAutocomplete autocomplete = (FuzzyTernarySearchTreeAutocomplete) createAutocomplete();
+        autocomplete.addAll(cities, WEIGHT);
+        List<String> distinct = cities.stream().distinct().collect(Collectors.toList());
+        for (String prefix : List.of("Seatle", "Sna", "Brelin", "Zurch", "Tokio", "*Sae")) {
+            for (int maxEdits = 0; maxEdits <= FuzzyTernarySearchTreeAutocomplete.MAX_EDITS; maxEdits += 1) {
+                Map<String, Integer> distances = new HashMap<>();
+                for (String city : distinct) {
+                    int distance = prefixDistance(prefix, city);
+                    if (distance <= maxEdits) {
+                        distances.put(city, distance);
+                    }
+                }
+                for (int k : new int[]{1, 5, 10, 25}) {
+                    List<String> expected = distances.keySet().stream()
+                            .sorted(Comparator.comparing((String city) -> distances.get(city))
+                                    .thenComparing(city -> -WEIGHT.applyAsDouble(city)))
+                            .limit(k)
+                            .map(city -> distances.get(city) + " " + WEIGHT.applyAsDouble(city))
+                            .collect(Collectors.toList());
+                    List<String> actual = autocomplete.fuzzyMatches(prefix, maxEdits, k).stream()
+                            .map(match -> prefixDistance(prefix, match) + " " + WEIGHT.applyAsDouble(match))
+                            .collect(Collectors.toList());
+                    assertEquals(expected, actual, () -> prefix);
+                }
+            }
+        }
+    }
+
+    @Test
+    void invalidEdits() {
+        FuzzyTernarySearchTreeAutocomplete autocomplete = (FuzzyTernarySearchTreeAutocomplete) createAutocomplete();
+        assertThrows(IllegalArgumentException.class, () -> autocomplete.fuzzyMatches("Sea", -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> autocomplete.fuzzyMatches("Sea", 3, 10));
+    }
+
+    /**
+     * Returns the smallest edit distance between the prefix and any prefix of the term.
+     */
+    private static int prefixDistance(CharSequence prefix, CharSequence term) {
+        int[] row = new int[prefix.length() + 1];
+        for (int i = 0; i <= prefix.length(); i += 1) {
+            row[i] = i;
+        }
+        int best = row[prefix.length()];
+        for (int j = 1; j <= term.length(); j += 1) {
+            int[] next = new int[row.length];
+            next[0] = j;
+            for (int i = 1; i <= prefix.length(); i += 1) {
+                int cost = prefix.charAt(i - 1) == term.charAt(j - 1) ? 0 : 1;
+                next[i] = Math.min(row[i - 1] + cost, Math.min(next[i - 1], row[i]) + 1);
+            }
+            row = next;
+            best = Math.min(best, row[prefix.length()]);
+        }
+        return best;
+    }
+}
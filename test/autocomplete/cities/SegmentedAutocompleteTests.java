@@ -0,0 +1,41 @@
+package autocomplete.cities;
+
+import autocomplete.Autocomplete;
+import autocomplete.SegmentedAutocomplete;
+import autocomplete.TreeSetAutocomplete;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SegmentedAutocomplete} class.
+ *
+ * @see SegmentedAutocomplete
+ */
+public class SegmentedAutocompleteTests extends AutocompleteTests {
+    @Override
+    public Autocomplete createAutocomplete() {
+        return new SegmentedAutocomplete();
+    }
+
+    @Test
+    void addsManyBatches() {
+        SegmentedAutocomplete autocomplete = new SegmentedAutocomplete();
+        Autocomplete reference = new TreeSetAutocomplete();
+        // Overlapping batches, so some terms are added more than once.
+        for (int start = 0; start < cities.size(); start += 50) {
+            List<String> batch = new ArrayList<>(cities.subList(start, Math.min(start + 100, cities.size())));
+            autocomplete.addAll(batch);
+            reference.addAll(batch);
+        }
+        autocomplete.compact();
+        assertTrue(autocomplete.segments() < 4 * 8, "Too many segments: " + autocomplete.segments());
+        for (String prefix : List.of("A", "Sa", "San", "New", "Z", "x")) {
+            assertEquals(reference.allMatches(prefix), autocomplete.allMatches(prefix), prefix);
+            assertEquals(reference.allMatches(prefix).size(), autocomplete.countMatches(prefix), prefix);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package autocomplete.cities;
+
+import autocomplete.Autocomplete;
+import autocomplete.TopKTernarySearchTreeAutocomplete;
+import autocomplete.WeightedAutocomplete;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link TopKTernarySearchTreeAutocomplete} class.
+ *
+ * @see TopKTernarySearchTreeAutocomplete
+ */
+public class TopKTernarySearchTreeAutocompleteTests extends AutocompleteTests {
+    /**
+     * Arbitrary but deterministic weight for each term.
+     */
+    static final ToDoubleFunction<CharSequence> WEIGHT = term -> term.toString().hashCode();
+
+    @Override
+    public Autocomplete createAutocomplete() {
+        return new TopKTernarySearchTreeAutocomplete();
+    }
+
+    @Test
+    void compareTopMatches() {
+        WeightedAutocomplete autocomplete = (WeightedAutocomplete) createAutocomplete();
+        autocomplete.addAll(cities, WEIGHT);
+        for (String prefix : List.of("Sea", "S", "San", "Ber", "Z", "*Sea")) {
+            for (int k : new int[]{1, 5, 10, 25}) {
+                List<Double> expected = cities.stream()
+                        .filter(city -> Autocomplete.isPrefixOf(prefix, city))
+                        .distinct()
+                        .map(WEIGHT::applyAsDouble)
+                        .sorted(Comparator.reverseOrder())
+                        .limit(k)
+                        .collect(Collectors.toList());
+                List<Double> actual = autocomplete.topMatches(prefix, k).stream()
+                        .peek(match -> assertTrue(Autocomplete.isPrefixOf(prefix, match)))
+                        .map(WEIGHT::applyAsDouble)
+                        .collect(Collectors.toList());
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    void compareSessionTopMatches() {
+        TopKTernarySearchTreeAutocomplete autocomplete = (TopKTernarySearchTreeAutocomplete) createAutocomplete();
+        autocomplete.addAll(cities, WEIGHT);
+        TopKTernarySearchTreeAutocomplete.Session session = autocomplete.session();
+        // Type each word one character at a time, then backspace and switch to the next word.
+        for (String word : List.of("Seattle", "Sea", "Sao Paulo", "Zzz", "Zurich", "", "Berlin")) {
+            for (int length = 0; length <= word.length(); length += 1) {
+                String prefix = word.substring(0, length);
+                assertEquals(autocomplete.topMatches(prefix, 10), session.topMatches(prefix, 10));
+            }
+        }
+    }
+}
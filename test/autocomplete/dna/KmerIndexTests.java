@@ -0,0 +1,73 @@
+package autocomplete.dna;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link KmerIndex} class.
+ *
+ * @see KmerIndex
+ */
+public class KmerIndexTests {
+    @Test
+    void compareRandomTexts() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < 200; trial += 1) {
+            int k = 1 + random.nextInt(6);
+            String text = randomText(random, random.nextInt(300));
+            KmerIndex index = new KmerIndex(PackedDna.of(text), k);
+            List<String> queries = new ArrayList<>();
+            for (int query = 0; query < 20; query += 1) {
+                int length = 1 + random.nextInt(12);
+                if (query % 2 == 0 && text.length() > 0) {
+                    int start = random.nextInt(text.length());
+                    queries.add(text.substring(start, Math.min(text.length(), start + length)));
+                } else {
+                    queries.add(randomText(random, length));
+                }
+            }
+            int[] counts = index.countMatches(queries);
+            for (int i = 0; i < queries.size(); i += 1) {
+                List<Integer> expected = new ArrayList<>();
+                for (int p = 0; p < text.length(); p += 1) {
+                    if (text.startsWith(queries.get(i), p)) {
+                        expected.add(p);
+                    }
+                }
+                assertEquals(expected.size(), counts[i]);
+                List<Integer> actual = new ArrayList<>();
+                for (int p : index.positions(queries.get(i), Integer.MAX_VALUE)) {
+                    actual.add(p);
+                }
+                assertEquals(expected.size(), actual.size());
+                assertTrue(actual.containsAll(expected));
+            }
+        }
+    }
+
+    @Test
+    void rejectsOtherCharacters() {
+        KmerIndex index = new KmerIndex(PackedDna.of("ACGTACGTACGTACGT"), 4);
+        assertEquals(4, index.countMatches("ACGT"));
+        assertEquals(0, index.countMatches("acgt"));
+        assertEquals(0, index.countMatches("ACGN"));
+        assertEquals(2, index.positions("CG", 2).length);
+        assertThrows(IllegalArgumentException.class, () -> new KmerIndex(PackedDna.of("ACGT"), 0));
+    }
+
+    /**
+     * Returns a string of the given length with bases chosen at random.
+     */
+    private static String randomText(Random random, int length) {
+        StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < length; i += 1) {
+            result.append("ACGT".charAt(random.nextInt(4)));
+        }
+        return result.toString();
+    }
+}
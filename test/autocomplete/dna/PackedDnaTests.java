@@ -0,0 +1,56 @@
+package autocomplete.dna;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link PackedDna} class.
+ *
+ * @see PackedDna
+ */
+public class PackedDnaTests {
+    @Test
+    void readsBases() throws IOException {
+        String text = "acgtt\nggcat\n  aac\n";
+        PackedDna dna = PackedDna.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("acgttggcataac", dna.toString());
+        assertEquals(13, dna.length());
+        assertEquals('g', dna.charAt(5));
+        assertEquals("ggca", dna.subSequence(5, 9).toString());
+        assertThrows(IllegalArgumentException.class, () -> PackedDna.of("ACGN"));
+        assertThrows(IllegalArgumentException.class, () -> PackedDna.of("ACgt"));
+    }
+
+    @Test
+    void compareRandomSuffixes() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < 100; trial += 1) {
+            // Mostly repeated bases, so that suffixes often share prefixes longer than a word.
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(300);
+            for (int i = 0; i < length; i += 1) {
+                text.append(random.nextInt(50) == 0 ? "ACGT".charAt(random.nextInt(4)) : 'A');
+            }
+            String bases = text.toString();
+            PackedDna dna = PackedDna.of(bases);
+            assertEquals(bases, dna.toString());
+            for (int query = 0; query < 50 && length > 0; query += 1) {
+                int i = random.nextInt(length);
+                int j = random.nextInt(length);
+                int common = 0;
+                while (i + common < length && j + common < length
+                        && bases.charAt(i + common) == bases.charAt(j + common)) {
+                    common += 1;
+                }
+                assertEquals(common, dna.mismatch(i, dna, j, Integer.MAX_VALUE));
+                assertEquals(Math.min(common, 5), dna.mismatch(i, dna, j, 5));
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package autocomplete.dna;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SuffixArray} class.
+ *
+ * @see SuffixArray
+ */
+public class SuffixArrayTests {
+    @Test
+    void compareRandomTexts() {
+        Random random = new Random(373);
+        for (String alphabet : List.of("A", "AC", "ACGT")) {
+            for (int trial = 0; trial < 100; trial += 1) {
+                String text = randomText(random, alphabet, random.nextInt(200));
+                SuffixArray suffixes = new SuffixArray(text);
+                assertEquals(text.length(), suffixes.size());
+                for (int query = 0; query < 20; query += 1) {
+                    String prefix = randomText(random, alphabet, 1 + random.nextInt(6));
+                    assertMatches(text, suffixes, prefix);
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesRepeats() {
+        String text = "ACGT".repeat(1000);
+        SuffixArray suffixes = new SuffixArray(text);
+        assertEquals(999, suffixes.countMatches("ACGTACGT"));
+        assertEquals(1000, suffixes.countMatches("T"));
+        assertEquals(0, suffixes.countMatches("AA"));
+        assertEquals(List.of("T", "TACGT"), toStrings(suffixes.allMatches("T", 2)));
+    }
+
+    /**
+     * Asserts that the suffix array finds exactly the sorted suffixes of the text starting with the prefix.
+     */
+    private static void assertMatches(String text, SuffixArray suffixes, String prefix) {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += 1) {
+            if (text.startsWith(prefix, i)) {
+                expected.add(text.substring(i));
+            }
+        }
+        Collections.sort(expected);
+        assertEquals(expected.size(), suffixes.countMatches(prefix));
+        assertEquals(expected, toStrings(suffixes.allMatches(prefix, Integer.MAX_VALUE)));
+    }
+
+    /**
+     * Returns a string of the given length with characters chosen at random from the alphabet.
+     */
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < length; i += 1) {
+            result.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the string contents of each sequence.
+     */
+    private static List<String> toStrings(List<CharSequence> sequences) {
+        List<String> result = new ArrayList<>();
+        for (CharSequence sequence : sequences) {
+            result.add(sequence.toString());
+        }
+        return result;
+    }
+}
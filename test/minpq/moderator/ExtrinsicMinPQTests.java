@@ -5,6 +5,7 @@ import minpq.ExtrinsicMinPQ;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import tsv.TsvReader;
 
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -38,13 +39,13 @@ public abstract class ExtrinsicMinPQTests {
 
     @BeforeAll
     void setup() throws IOException {
-        Scanner scanner = new Scanner(new GZIPInputStream(new FileInputStream(PATH)));
-        scanner.nextLine(); // Skip header
-        while (scanner.hasNextLine()) {
-            Scanner line = new Scanner(scanner.nextLine()).useDelimiter("\t");
-            double toxicity = line.nextDouble();
-            String comment = line.next();
-            toxic.put(toxicity, comment);
+        try (TsvReader input = new TsvReader(new GZIPInputStream(new FileInputStream(PATH)))) {
+            input.next(); // Skip header
+            while (input.next()) {
+                double toxicity = input.doubleColumn(0);
+                String comment = input.column(1).toString();
+                toxic.put(toxicity, comment);
+            }
         }
     }
 
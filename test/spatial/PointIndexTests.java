@@ -0,0 +1,105 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link PointIndex} class comparing its queries against checking every item.
+ *
+ * @see PointIndex
+ */
+public class PointIndexTests {
+    /**
+     * Returns random points around Seattle, some sharing coordinates with earlier points.
+     */
+    static List<double[]> points(Random random, int n) {
+        List<double[]> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i += 1) {
+            if (i > 0 && random.nextInt(5) == 0) {
+                result.add(result.get(random.nextInt(i)).clone());
+            } else {
+                result.add(new double[]{-122.5 + random.nextDouble() / 2, 47.4 + random.nextDouble() / 2});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the squared equirectangular distance between the point and the query location.
+     */
+    static double distance(double[] point, double lon, double lat) {
+        double dLon = (lon - point[0]) * Math.cos(Math.toRadians(lat));
+        double dLat = lat - point[1];
+        return dLon * dLon + dLat * dLat;
+    }
+
+    @Test
+    void compareRange() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < 100; trial += 1) {
+            List<double[]> points = points(random, random.nextInt(300));
+            PointIndex<double[]> index = new PointIndex<>(points, point -> point[0], point -> point[1]);
+            assertEquals(points.size(), index.size());
+            for (int query = 0; query < 20; query += 1) {
+                double[] corner = points(random, 1).get(0);
+                double minLon = corner[0];
+                double minLat = corner[1];
+                double maxLon = minLon + random.nextDouble() / 4;
+                double maxLat = minLat + random.nextDouble() / 4;
+                Predicate<double[]> filter = point -> (long) (point[1] * 1e6) % 3 != 0;
+                Set<double[]> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (double[] point : points) {
+                    if (minLon <= point[0] && point[0] <= maxLon && minLat <= point[1] && point[1] <= maxLat
+                            && filter.test(point)) {
+                        expected.add(point);
+                    }
+                }
+                List<double[]> actual = index.range(minLon, minLat, maxLon, maxLat, filter);
+                assertEquals(expected.size(), actual.size());
+                assertTrue(expected.containsAll(actual));
+            }
+        }
+    }
+
+    @Test
+    void compareNearest() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < 100; trial += 1) {
+            List<double[]> points = points(random, random.nextInt(300));
+            PointIndex<double[]> index = new PointIndex<>(points, point -> point[0], point -> point[1]);
+            for (int query = 0; query < 20; query += 1) {
+                double[] target = points(random, 1).get(0);
+                double lon = target[0];
+                double lat = target[1];
+                int k = 1 + random.nextInt(20);
+                boolean bounded = random.nextBoolean();
+                double minLon = bounded ? lon - random.nextDouble() / 8 : Double.NEGATIVE_INFINITY;
+                double minLat = bounded ? lat - random.nextDouble() / 8 : Double.NEGATIVE_INFINITY;
+                double maxLon = bounded ? lon + random.nextDouble() / 8 : Double.POSITIVE_INFINITY;
+                double maxLat = bounded ? lat + random.nextDouble() / 8 : Double.POSITIVE_INFINITY;
+                Predicate<double[]> filter = point -> (long) (point[1] * 1e6) % 4 != 0;
+                List<Double> expected = points.stream()
+                        .filter(point -> minLon <= point[0] && point[0] <= maxLon)
+                        .filter(point -> minLat <= point[1] && point[1] <= maxLat)
+                        .filter(filter)
+                        .map(point -> distance(point, lon, lat))
+                        .sorted()
+                        .limit(k)
+                        .collect(Collectors.toList());
+                List<double[]> result = bounded
+                        ? index.nearest(lon, lat, k, minLon, minLat, maxLon, maxLat, filter)
+                        : index.nearest(lon, lat, k, filter);
+                List<Double> actual = result.stream()
+                        .peek(point -> assertTrue(filter.test(point)))
+                        .map(point -> distance(point, lon, lat))
+                        .collect(Collectors.toList());
+                assertEquals(expected, actual);
+            }
+        }
+    }
+}
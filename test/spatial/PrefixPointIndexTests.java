@@ -0,0 +1,139 @@
+package spatial;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link PrefixPointIndex} class comparing its queries against scoring every match.
+ *
+ * @see PrefixPointIndex
+ */
+public class PrefixPointIndexTests {
+    /**
+     * A named point with a cost.
+     */
+    private static class Place {
+        final String name;
+        final double lon;
+        final double lat;
+        final double cost;
+
+        Place(String name, double lon, double lat, double cost) {
+            this.name = name;
+            this.lon = lon;
+            this.lat = lat;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Returns the cost of the place plus the distance cost times its equirectangular distance from the location.
+     */
+    private static double score(Place place, double lon, double lat, double distanceCost) {
+        double dLon = (lon - place.lon) * Math.cos(Math.toRadians(lat));
+        double dLat = lat - place.lat;
+        return place.cost + distanceCost * Math.sqrt(dLon * dLon + dLat * dLat);
+    }
+
+    /**
+     * Returns random places with short names from a small alphabet, so that many share names and prefixes, some at
+     * the same coordinates as earlier places.
+     */
+    private static List<Place> places(Random random, int n) {
+        List<Place> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i += 1) {
+            StringBuilder name = new StringBuilder();
+            for (int length = 1 + random.nextInt(4); name.length() < length; ) {
+                name.append((char) ('a' + random.nextInt(3)));
+            }
+            double lon = -122.5 + random.nextDouble() / 2;
+            double lat = 47.4 + random.nextDouble() / 2;
+            if (i > 0 && random.nextInt(4) == 0) {
+                Place other = result.get(random.nextInt(i));
+                lon = other.lon;
+                lat = other.lat;
+            }
+            result.add(new Place(name.toString(), lon, lat, random.nextInt(10)));
+        }
+        return result;
+    }
+
+    @Test
+    void compareTopMatches() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < 100; trial += 1) {
+            List<Place> places = places(random, random.nextInt(300));
+            PrefixPointIndex<Place> index = new PrefixPointIndex<>(
+                    places, place -> place.name, place -> place.lon, place -> place.lat, place -> place.cost
+            );
+            assertEquals(places.size(), index.size());
+            for (int query = 0; query < 20; query += 1) {
+                String name = places(random, 1).get(0).name;
+                String prefix = name.substring(0, 1 + random.nextInt(Math.min(2, name.length())));
+                double lon = -122.5 + random.nextDouble() / 2;
+                double lat = 47.4 + random.nextDouble() / 2;
+                double distanceCost = 20.0 * random.nextInt(3);
+                int k = 1 + random.nextInt(15);
+                List<Double> expected = places.stream()
+                        .filter(place -> place.name.startsWith(prefix))
+                        .map(place -> score(place, lon, lat, distanceCost))
+                        .sorted()
+                        .limit(k)
+                        .collect(Collectors.toList());
+                List<Double> actual = index.topMatches(prefix, lon, lat, distanceCost, k, place -> true).stream()
+                        .peek(place -> assertTrue(place.name.startsWith(prefix)))
+                        .map(place -> score(place, lon, lat, distanceCost))
+                        .collect(Collectors.toList());
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    void keepsBestPlaceOfEachName() {
+        Random random = new Random(373);
+        for (int trial = 0; trial < 100; trial += 1) {
+            List<Place> places = places(random, random.nextInt(300));
+            PrefixPointIndex<Place> index = new PrefixPointIndex<>(
+                    places, place -> place.name, place -> place.lon, place -> place.lat, place -> place.cost
+            );
+            String prefix = String.valueOf((char) ('a' + random.nextInt(3)));
+            double lon = -122.5 + random.nextDouble() / 2;
+            double lat = 47.4 + random.nextDouble() / 2;
+            int k = 1 + random.nextInt(15);
+            // Score each name by its best place.
+            Map<String, Double> best = new HashMap<>();
+            for (Place place : places) {
+                if (place.name.startsWith(prefix)) {
+                    best.merge(place.name, score(place, lon, lat, 20), Math::min);
+                }
+            }
+            List<Double> expected = best.values().stream().sorted().limit(k).collect(Collectors.toList());
+            Set<String> seen = new HashSet<>();
+            Predicate<Place> unseen = place -> seen.add(place.name);
+            List<Place> result = index.topMatches(prefix, lon, lat, 20, k, unseen);
+            assertEquals(result.size(), result.stream().map(place -> place.name).distinct().count());
+            List<Double> actual = result.stream()
+                    .map(place -> score(place, lon, lat, 20))
+                    .collect(Collectors.toList());
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void matchesNothingForEmptyPrefix() {
+        List<Place> places = List.of(new Place("sea", -122.3, 47.6, 1), new Place("seattle", -122.3, 47.6, 0));
+        PrefixPointIndex<Place> index = new PrefixPointIndex<>(
+                places, place -> place.name, place -> place.lon, place -> place.lat, place -> place.cost
+        );
+        assertTrue(index.topMatches("", -122.3, 47.6, 1, 5, place -> true).isEmpty());
+        assertEquals(List.of("seattle", "sea"), index.topMatches("sea", -122.3, 47.6, 1, 5, place -> true).stream()
+                .map(place -> place.name)
+                .collect(Collectors.toList()));
+    }
+}
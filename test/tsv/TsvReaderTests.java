@@ -0,0 +1,113 @@
+package tsv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link TsvReader} class.
+ *
+ * @see TsvReader
+ */
+public class TsvReaderTests {
+    /**
+     * Returns a reader for the given text.
+     */
+    private static TsvReader reader(String text, boolean readAhead) {
+        return new TsvReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), readAhead);
+    }
+
+    @Test
+    void readsColumns() throws IOException {
+        for (boolean readAhead : new boolean[]{false, true}) {
+            try (TsvReader input = reader("Seattle\t737015\t47.6\r\nSão Paulo\t-12\t1e3\n\nlast\t", readAhead)) {
+                assertTrue(input.next());
+                assertEquals(3, input.columns());
+                assertEquals("Seattle", input.column(0).toString());
+                assertEquals(737015, input.intColumn(1));
+                assertEquals(47.6, input.doubleColumn(2));
+                assertTrue(input.next());
+                assertEquals("São Paulo", input.column(0).toString());
+                assertEquals(-12, input.intColumn(1));
+                assertEquals(1000.0, input.doubleColumn(2));
+                assertTrue(input.next());
+                assertEquals(1, input.columns());
+                assertEquals("", input.column(0).toString());
+                assertTrue(input.next());
+                assertEquals(2, input.columns());
+                assertEquals("", input.column(1).toString());
+                assertFalse(input.next());
+            }
+        }
+    }
+
+    @Test
+    void readsLongLines() throws IOException {
+        String name = "x".repeat(3 << 20);
+        try (TsvReader input = reader("a\t1\n" + name + "\t2\nb\t3\n", false)) {
+            assertTrue(input.next());
+            assertTrue(input.next());
+            assertEquals(name, input.column(0).toString());
+            assertEquals(2, input.intColumn(1));
+            assertTrue(input.next());
+            assertEquals(3, input.intColumn(1));
+            assertFalse(input.next());
+        }
+    }
+
+    @Test
+    void closesWhileReadingAhead() throws IOException {
+        byte[] text = "Seattle\t1\n".repeat(1 << 18).getBytes(StandardCharsets.UTF_8);
+        for (int trial = 0; trial < 20; trial += 1) {
+            AtomicBoolean reading = new AtomicBoolean();
+            AtomicBoolean closed = new AtomicBoolean();
+            AtomicBoolean closedWhileReading = new AtomicBoolean();
+            InputStream input = new FilterInputStream(new ByteArrayInputStream(text)) {
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    reading.set(true);
+                    try {
+                        // Take long enough to read that the reader is usually closed in the middle of a read.
+                        long start = System.nanoTime();
+                        while (System.nanoTime() - start < 1_000_000) {
+                            Thread.onSpinWait();
+                        }
+                        return super.read(b, off, len);
+                    } finally {
+                        reading.set(false);
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    closedWhileReading.compareAndSet(false, reading.get());
+                    closed.set(true);
+                    super.close();
+                }
+            };
+            try (TsvReader reader = new TsvReader(input, true)) {
+                assertTrue(reader.next());
+            }
+            assertTrue(closed.get());
+            assertFalse(closedWhileReading.get());
+        }
+    }
+
+    @Test
+    void rejectsInvalidNumbers() throws IOException {
+        try (TsvReader input = reader("2147483648\t-\t1.2.3\n", false)) {
+            assertTrue(input.next());
+            assertThrows(NumberFormatException.class, () -> input.intColumn(0));
+            assertThrows(NumberFormatException.class, () -> input.intColumn(1));
+            assertThrows(NumberFormatException.class, () -> input.doubleColumn(2));
+            assertThrows(IndexOutOfBoundsException.class, () -> input.column(3));
+        }
+    }
+}